@@ -1,32 +1,36 @@
 package Keywords;
 
+import Tokens.PerfectHash;
 import Tokens.TokenType;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 
 public class KeywordTable {
-    private final HashMap<String, TokenType> kwMap = new HashMap<>();
+    private final Map<String, TokenType> kwMap;
+    // Perfect hash over the keywords that is used for lookups
+    private final PerfectHash<TokenType> kwHash;
+    // The only instance, created during class initialization, which makes it visible to every thread without locking
     private final static KeywordTable INSTANCE = new KeywordTable();
-    private static boolean init = false;
 
     private KeywordTable() {
+        // Add keywords to table
+        HashMap<String, TokenType> map = new HashMap<>();
+        map.put("var", TokenType.VAR_DECL);
+        map.put("let", TokenType.CONST_DECL);
+        map.put("true", TokenType.BOOL_LITERAL);
+        map.put("false", TokenType.BOOL_LITERAL);
+        kwMap = Collections.unmodifiableMap(map);
+        kwHash = new PerfectHash<>(map);
     }
 
     /**
-     * Initializes the only instance of KeywordTable if it has not been initialized and then returns it.
+     * Gets the only instance of KeywordTable, which cannot be modified and can be shared between threads.
      *
      * @return a KeywordTable object.
      */
     public static KeywordTable getInstance() {
-        if (!init) {
-            // Add keywords to table
-            INSTANCE.kwMap.put("var", TokenType.VAR_DECL);
-            INSTANCE.kwMap.put("let", TokenType.CONST_DECL);
-            INSTANCE.kwMap.put("true", TokenType.BOOL_LITERAL);
-            INSTANCE.kwMap.put("false", TokenType.BOOL_LITERAL);
-
-            init = true;
-        }
         return INSTANCE;
     }
 
@@ -37,6 +41,39 @@ public class KeywordTable {
      * @return a TokenType object as the keyword's id if it exists, otherwise, return null.
      */
     public TokenType getId(String kwStr) {
-        return kwMap.get(kwStr);
+        return kwHash.get(kwStr);
+    }
+
+    /**
+     * Gets the keyword's id associated with a range of characters without creating a string.
+     *
+     * @param chars  the array that holds the characters.
+     * @param offset the position of the first character.
+     * @param length the number of characters.
+     * @return a TokenType object as the keyword's id if it exists, otherwise, return null.
+     */
+    public TokenType getId(char[] chars, int offset, int length) {
+        return kwHash.get(chars, offset, length);
+    }
+
+    /**
+     * Gets the keyword's id associated with a range of UTF-8 encoded bytes without creating a string.
+     *
+     * @param bytes  the array that holds the bytes.
+     * @param offset the position of the first byte.
+     * @param length the number of bytes.
+     * @return a TokenType object as the keyword's id if it exists, otherwise, return null.
+     */
+    public TokenType getId(byte[] bytes, int offset, int length) {
+        return kwHash.get(bytes, offset, length);
+    }
+
+    /**
+     * Gets all keywords in the table.
+     *
+     * @return a read-only map from keyword strings to their ids.
+     */
+    public Map<String, TokenType> getKwMap() {
+        return kwMap;
     }
 }
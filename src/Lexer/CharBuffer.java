@@ -1,31 +1,86 @@
 package Lexer;
 
+import Tokens.TokenSrc;
+
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.ArrayDeque;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 
-public class CharBuffer {
-    private final ArrayDeque<Integer> buff = new ArrayDeque<>();
+public class CharBuffer implements TokenSrc {
+    private final static int EOS = -1;
+    private final static int INIT_CAPACITY = 1 << 12;
+    // Masks with a bit set in every byte of a word
+    private final static long LOW_BITS = 0x0101010101010101L;
+    private final static long HIGH_BITS = 0x8080808080808080L;
     private final BufferedReader reader;
+    // UTF-8 encoded source when the characters are read directly from memory, null if they are read from a stream
+    private final ByteBuffer bytes;
+    // Ring buffer whose capacity is always a power of two so that positions can be wrapped with a mask
+    private char[] buff;
+    // Absolute positions in the stream: characters in [start, end) are held in the buffer,
+    // pos is the position of the next character to be read
+    // When reading from memory, the positions are byte offsets and [start, end) is the whole source
+    private int start = 0;
+    private int pos = 0;
+    private int end = 0;
+    // Position saved by mark(), -1 if there is no mark
+    private int markPos = -1;
+    private boolean eos = false;
 
     public CharBuffer(BufferedReader reader) {
         this.reader = reader;
+        this.bytes = null;
+        this.buff = new char[INIT_CAPACITY];
+    }
+
+    /**
+     * Creates a buffer that reads UTF-8 encoded characters directly from memory without copying them, for example,
+     * from a MappedByteBuffer. The position and limit of the given buffer are not modified.
+     *
+     * @param bytes the buffer that holds the source.
+     */
+    public CharBuffer(ByteBuffer bytes) {
+        this(bytes, bytes.position());
+    }
+
+    /**
+     * Creates a buffer that reads UTF-8 encoded characters directly from memory, starting from a position after the
+     * beginning of the source. The characters before that position can still be extracted.
+     *
+     * @param bytes the buffer that holds the source.
+     * @param pos   the position of the first character to be read.
+     */
+    CharBuffer(ByteBuffer bytes, int pos) {
+        this.reader = null;
+        // Words are read in big-endian order so that the first byte is the most significant one
+        this.bytes = bytes.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.start = bytes.position();
+        this.pos = pos;
+        this.end = bytes.limit();
+        this.eos = true;
     }
 
     /**
-     * Peeks without extracting a character from the internal buffer. If the internal buffer is empty, read a character
-     * from the stream into the buffer.
+     * Peeks without extracting a character from the internal buffer. If the internal buffer is empty, read a chunk of
+     * characters from the stream into the buffer.
      *
      * @return the peeked character(as an int).
      * @throws IOException if there is an error while reading from the stream.
      */
     public int peek() throws IOException {
-        if (buff.isEmpty()) {
-            buff.addLast(reader.read());
+        if (bytes != null) {
+            if (pos == end) {
+                return EOS;
+            }
+            int b = bytes.get(pos);
+            return b >= 0 ? b : decodeUtf8(pos);
+        }
+        if (pos == end && !fill()) {
+            return EOS;
         }
-        // This buffer will never be empty
-        assert !buff.isEmpty();
-        return buff.peekFirst();
+        return buff[pos & (buff.length - 1)];
     }
 
     /**
@@ -36,24 +91,354 @@ public class CharBuffer {
      */
     public int read() throws IOException {
         int c = peek();
-        buff.pop();
+        if (c != EOS) {
+            pos = bytes == null ? pos + 1 : nextUtf8Pos(pos);
+        }
         return c;
     }
 
     /**
-     * Puts back a valid string into the internal buffer.
+     * Gets the position of the next character to be read.
      *
-     * @param str the string to be put back.
+     * @return the current position.
      */
-    public void putBack(String str) throws IllegalArgumentException {
-        if (str == null) {
-            throw new IllegalArgumentException("Null string cannot be put back into the lexer buffer");
+    public int getPos() {
+        return pos;
+    }
+
+    /**
+     * Gets the characters from the given position up to the current position. The characters must still be held in
+     * the buffer, which is guaranteed if the given position has been marked.
+     *
+     * @param from the position of the first character.
+     * @return a string of the characters that have been read since the given position.
+     */
+    public String getStr(int from) {
+        return getStr(from, pos - from);
+    }
+
+    @Override
+    public String getStr(int offset, int length) throws IllegalArgumentException {
+        checkHeld(offset, length);
+        if (bytes != null) {
+            byte[] strBytes = new byte[length];
+            bytes.get(offset, strBytes);
+            return new String(strBytes, StandardCharsets.UTF_8);
         }
-        if (str.isEmpty()) {
-            throw new IllegalArgumentException("Empty string cannot be put back into the lexer buffer");
+        int off = offset & (buff.length - 1);
+        if (off + length <= buff.length) {
+            return new String(buff, off, length);
         }
-        for (int i = str.length() - 1; i >= 0; --i) {
-            buff.addFirst((int) str.charAt(i));
+        // The characters wrap around the end of the ring
+        return new String(buff, off, buff.length - off) + new String(buff, 0, length - (buff.length - off));
+    }
+
+    @Override
+    public int hashStr(int offset, int length) throws IllegalArgumentException {
+        checkHeld(offset, length);
+        int h = 0;
+        int to = offset + length;
+        if (bytes != null) {
+            for (int i = offset; i < to; i = nextUtf8Pos(i)) {
+                int c = bytes.get(i);
+                if (c < 0) {
+                    c = decodeUtf8(i);
+                    if (Character.isSupplementaryCodePoint(c)) {
+                        h = 31 * h + Character.highSurrogate(c);
+                        c = Character.lowSurrogate(c);
+                    }
+                }
+                h = 31 * h + c;
+            }
+        } else {
+            for (int i = offset; i < to; ++i) {
+                h = 31 * h + buff[i & (buff.length - 1)];
+            }
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equalsStr(int offset, int length, String str) throws IllegalArgumentException {
+        checkHeld(offset, length);
+        int to = offset + length;
+        int j = 0;
+        if (bytes != null) {
+            for (int i = offset; i < to; i = nextUtf8Pos(i)) {
+                int c = bytes.get(i);
+                if (c < 0) {
+                    c = decodeUtf8(i);
+                }
+                if (j >= str.length() || str.codePointAt(j) != c) {
+                    return false;
+                }
+                j += Character.charCount(c);
+            }
+        } else {
+            for (int i = offset; i < to; ++i, ++j) {
+                if (j >= str.length() || str.charAt(j) != buff[i & (buff.length - 1)]) {
+                    return false;
+                }
+            }
+        }
+        return j == str.length();
+    }
+
+    /**
+     * Checks if the characters in a range are still held in the buffer.
+     *
+     * @param offset the position of the first character.
+     * @param length the number of positions in the range.
+     */
+    private void checkHeld(int offset, int length) throws IllegalArgumentException {
+        if (offset < start || length < 0 || offset + length > end) {
+            throw new IllegalArgumentException("Characters at position " + offset +
+                    " are no longer in the lexer buffer");
+        }
+    }
+
+    /**
+     * Marks the current position so that the characters read after it are kept in the buffer until the mark is
+     * reset or cleared.
+     */
+    public void mark() {
+        markPos = pos;
+    }
+
+    /**
+     * Moves back to the marked position and clears the mark.
+     */
+    public void reset() throws IllegalStateException {
+        if (markPos < 0) {
+            throw new IllegalStateException("Cannot reset the lexer buffer without a mark");
+        }
+        pos = markPos;
+        markPos = -1;
+    }
+
+    /**
+     * Clears the mark without moving back so that the characters before the current position can be discarded.
+     */
+    public void clearMark() {
+        markPos = -1;
+    }
+
+    /**
+     * Skips a run of ASCII whitespace characters, 8 bytes at a time. The run ends at the first character that is not
+     * ASCII whitespace, which includes every non-ASCII character. Only works on characters read from memory.
+     *
+     * @return the number of line breaks that have been skipped.
+     */
+    public int skipAsciiSpaces() {
+        int lines = 0;
+        while (pos + Long.BYTES <= end) {
+            long word = bytes.getLong(pos);
+            // Same as Character.isWhitespace for ASCII characters: '\t' to '\r' and '\u001C' to ' '
+            long match = (inRange(word, 0x09, 0x0D) | inRange(word, 0x1C, 0x20));
+            int n = countMatches(match);
+            lines += Long.bitCount(inRange(word, '\n', '\n') & prefixMask(n));
+            pos += n;
+            if (n < Long.BYTES) {
+                return lines;
+            }
+        }
+        int b;
+        while (pos < end && ((b = bytes.get(pos)) >= 0x09 && b <= 0x0D || b >= 0x1C && b <= 0x20)) {
+            if (b == '\n') {
+                ++lines;
+            }
+            ++pos;
+        }
+        return lines;
+    }
+
+    /**
+     * Skips a run of ASCII letters, digits and underscores, 8 bytes at a time. Only works on characters read from
+     * memory.
+     */
+    public void skipAsciiIdChars() {
+        while (pos + Long.BYTES <= end) {
+            long word = bytes.getLong(pos);
+            long match = inRange(word, '0', '9') | inRange(word, 'A', 'Z') | inRange(word, 'a', 'z') |
+                    inRange(word, '_', '_');
+            int n = countMatches(match);
+            pos += n;
+            if (n < Long.BYTES) {
+                return;
+            }
+        }
+        int b;
+        while (pos < end && ((b = bytes.get(pos)) >= '0' && b <= '9' || b >= 'A' && b <= 'Z' ||
+                b >= 'a' && b <= 'z' || b == '_')) {
+            ++pos;
+        }
+    }
+
+    /**
+     * Skips a run of ASCII digits, 8 bytes at a time. Only works on characters read from memory.
+     */
+    public void skipAsciiDigits() {
+        while (pos + Long.BYTES <= end) {
+            int n = countMatches(inRange(bytes.getLong(pos), '0', '9'));
+            pos += n;
+            if (n < Long.BYTES) {
+                return;
+            }
+        }
+        int b;
+        while (pos < end && (b = bytes.get(pos)) >= '0' && b <= '9') {
+            ++pos;
+        }
+    }
+
+    /**
+     * Gets the byte at a position. Only works on characters read from memory.
+     *
+     * @param at the position of the byte.
+     * @return the byte's value.
+     */
+    public int getByte(int at) {
+        return bytes.get(at);
+    }
+
+    /**
+     * Finds the ASCII bytes of a word that are in a range without branching on each byte.
+     *
+     * @param word 8 bytes of the source.
+     * @param lo   the lowest byte in the range.
+     * @param hi   the highest byte in the range.
+     * @return a word with the high bit set in every byte that is in the range.
+     */
+    private static long inRange(long word, int lo, int hi) {
+        // Adding to the low 7 bits of a byte never carries into the next byte
+        long low7 = word & ~HIGH_BITS;
+        long geLo = low7 + (0x80 - lo) * LOW_BITS;
+        long gtHi = low7 + (0x7F - hi) * LOW_BITS;
+        // Bytes with the high bit set are not ASCII
+        return geLo & ~gtHi & ~word & HIGH_BITS;
+    }
+
+    /**
+     * Counts the bytes at the start of a word that match.
+     *
+     * @param match a word with the high bit set in every byte that matches.
+     * @return the number of matching bytes before the first byte that does not match.
+     */
+    private static int countMatches(long match) {
+        return Long.numberOfLeadingZeros(~match & HIGH_BITS) >>> 3;
+    }
+
+    /**
+     * Creates a mask for the bytes at the start of a word.
+     *
+     * @param n the number of bytes.
+     * @return a word with every bit set in the first n bytes.
+     */
+    private static long prefixMask(int n) {
+        return n == Long.BYTES ? -1L : ~(-1L >>> (n << 3));
+    }
+
+    /**
+     * Determines if the characters stay in memory after being read, in which case tokens can refer to them by
+     * position instead of copying them.
+     *
+     * @return true if the characters are read from memory and false if they are read from a stream.
+     */
+    public boolean isInMemory() {
+        return bytes != null;
+    }
+
+    /**
+     * Reads a chunk of characters from the stream into the free space of the buffer, growing the buffer if there is
+     * none left.
+     *
+     * @return true if at least one character has been read and false if the end of stream has been reached.
+     * @throws IOException if there is an error while reading from the stream.
+     */
+    private boolean fill() throws IOException {
+        if (eos) {
+            return false;
+        }
+        // Discard the characters that can no longer be read again
+        start = markPos < 0 ? pos : markPos;
+        int capacity = buff.length;
+        if (end - start == capacity) {
+            grow();
+            capacity = buff.length;
+        }
+        // Read into the contiguous free space after end
+        int tail = end & (capacity - 1);
+        int len = Math.min(capacity - (end - start), capacity - tail);
+        int n = reader.read(buff, tail, len);
+        if (n < 0) {
+            eos = true;
+            return false;
+        }
+        end += n;
+        return n > 0 || fill();
+    }
+
+    /**
+     * Counts the number of bytes in a UTF-8 encoded character using its first byte. Malformed bytes are counted as
+     * one-byte characters.
+     *
+     * @param b the first byte of the character.
+     * @return the number of bytes in the character.
+     */
+    private int countUtf8Bytes(int b) {
+        if ((b & 0xE0) == 0xC0) {
+            return 2;
+        } else if ((b & 0xF0) == 0xE0) {
+            return 3;
+        } else if ((b & 0xF8) == 0xF0) {
+            return 4;
+        }
+        return 1;
+    }
+
+    /**
+     * Gets the position of the UTF-8 encoded character after the one at the given position.
+     *
+     * @param at the position of the current character.
+     * @return the position of the next character.
+     */
+    private int nextUtf8Pos(int at) {
+        return Math.min(at + countUtf8Bytes(bytes.get(at)), end);
+    }
+
+    /**
+     * Decodes the non-ASCII UTF-8 encoded character at the given position.
+     *
+     * @param at the position of the character.
+     * @return the character's code point, or U+FFFD if the bytes are malformed.
+     */
+    private int decodeUtf8(int at) {
+        int b = bytes.get(at);
+        int n = countUtf8Bytes(b);
+        if (n == 1 || at + n > end) {
+            return 0xFFFD;
+        }
+        int c = b & (0x7F >> n);
+        for (int i = 1; i < n; ++i) {
+            b = bytes.get(at + i);
+            if ((b & 0xC0) != 0x80) {
+                return 0xFFFD;
+            }
+            c = (c << 6) | (b & 0x3F);
+        }
+        return c;
+    }
+
+    /**
+     * Doubles the capacity of the buffer while keeping the characters in [start, end).
+     */
+    private void grow() {
+        char[] newBuff = new char[buff.length << 1];
+        int oldMask = buff.length - 1;
+        int newMask = newBuff.length - 1;
+        for (int i = start; i != end; ++i) {
+            newBuff[i & newMask] = buff[i & oldMask];
         }
+        buff = newBuff;
     }
 }
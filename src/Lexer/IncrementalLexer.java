@@ -0,0 +1,383 @@
+package Lexer;
+
+import Exceptions.SyntaxError;
+import Symbols.SymbolPool;
+import Tokens.TokenType;
+import Types.TypeTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class IncrementalLexer {
+    private final static int INIT_LINE_CAPACITY = 16;
+    private final static int INIT_WINDOW_CAPACITY = 16;
+    // The store is compacted once it is this many times larger than the text
+    private final static int COMPACT_RATIO = 4;
+    private final static int MIN_COMPACT_LEN = 1 << 16;
+    private final SymbolPool symbolPool = new SymbolPool();
+    // UTF-8 encoded bytes of the text, only ever appended to so that the text of the tokens stays where it is
+    // An edit appends a copy of the lines it touches with the edit applied, so every line is held in one piece
+    private byte[] store;
+    private int storeLen;
+    // The length of the text, all positions in the text are byte offsets into it
+    private int textLen;
+    // Checkpoints at the start of every line: the position of the line's first character in the text and in the
+    // store, the line itself is the index plus one and the first token on the line is found by line in the token stream
+    // Tokens never span lines so the lexer has no pending state at a checkpoint
+    // The arrays have a gap at the last edited line, the positions in the text after the gap are stored without the
+    // bytes that the edits have added
+    private int[] lineStarts;
+    private int[] lineOffsets;
+    private int lineCount;
+    private int lineGapStart;
+    private int lineGapLen;
+    private int lineStartShift;
+    // Tokens of the text, null if the text cannot be lexed
+    private TokenStream tokStream;
+    // The range of tokens that the last edit has changed
+    private int changeStart;
+    private int changeOldEnd;
+    private int changeNewEnd;
+
+    /**
+     * Creates a lexer that keeps the tokens of a text up to date as the text is edited.
+     *
+     * @param text the initial text.
+     * @throws SyntaxError if there is a syntax error in the text.
+     * @throws IOException if the read operation causes an IO error.
+     */
+    public IncrementalLexer(String text) throws SyntaxError, IOException {
+        store = text.getBytes(StandardCharsets.UTF_8);
+        storeLen = textLen = store.length;
+        relex();
+    }
+
+    public String getText() {
+        return new String(getBytes(), StandardCharsets.UTF_8);
+    }
+
+    public SymbolPool getSymbolPool() {
+        return symbolPool;
+    }
+
+    /**
+     * Gets the tokens of the current text. The stream is updated in place by the edits.
+     *
+     * @return a stream of tokens or null if the current text cannot be lexed.
+     */
+    public TokenStream getTokStream() {
+        return tokStream;
+    }
+
+    /**
+     * Gets the index of the first token that the last edit has changed. The tokens before it are the same as before
+     * the edit, including their lines.
+     *
+     * @return the index of the token.
+     */
+    public int getChangeStart() {
+        return changeStart;
+    }
+
+    /**
+     * Gets the index after the last token that the last edit has changed, in the tokens before the edit. The tokens
+     * after it are the same as before the edit apart from their positions and the number of lines that the edit has
+     * added.
+     *
+     * @return the index of the token before the edit.
+     */
+    public int getChangeOldEnd() {
+        return changeOldEnd;
+    }
+
+    /**
+     * Gets the index after the last token that the last edit has changed, in the tokens after the edit.
+     *
+     * @return the index of the token after the edit.
+     */
+    public int getChangeNewEnd() {
+        return changeNewEnd;
+    }
+
+    /**
+     * Replaces a range of the text and re-lexes the lines that contain the edit, starting from the checkpoint of the
+     * first one. The lines are copied to the end of the store with the edit applied and their tokens replace the old
+     * ones in place, so the cost of an edit depends on the length of the lines and on the distance from the last edit
+     * rather than on the length of the text. If the text could not be lexed before the edit, it is re-lexed as a
+     * whole.
+     *
+     * @param offset      the position of the first byte to be replaced.
+     * @param removedLen  the number of bytes to be removed.
+     * @param insertedStr the string to be inserted.
+     * @return the tokens of the edited text.
+     * @throws SyntaxError if there is a syntax error in the edited text, the text is edited anyway.
+     * @throws IOException if the read operation causes an IO error.
+     */
+    public TokenStream edit(int offset, int removedLen, String insertedStr) throws SyntaxError, IOException {
+        if (offset < 0 || removedLen < 0 || offset + removedLen > textLen) {
+            throw new IndexOutOfBoundsException("Edit at position " + offset + " is out of range");
+        }
+        byte[] inserted = insertedStr.getBytes(StandardCharsets.UTF_8);
+        int shift = inserted.length - removedLen;
+        int firstLine = findLine(offset);
+        int lastLine = findLine(offset + removedLen);
+        boolean atEnd = lastLine + 1 == lineCount;
+        int winStart = getLineStart(firstLine);
+        int oldWinEnd = atEnd ? textLen : getLineStart(lastLine + 1);
+        int winLen = oldWinEnd - winStart + shift;
+
+        // Append the edited lines to the store
+        ensureStoreCapacity(storeLen + winLen);
+        int winOffset = storeLen;
+        int headLen = offset - winStart;
+        int tailStart = offset + removedLen;
+        System.arraycopy(store, getLineOffset(firstLine), store, winOffset, headLen);
+        System.arraycopy(inserted, 0, store, winOffset + headLen, inserted.length);
+        System.arraycopy(store, getLineOffset(lastLine) + tailStart - getLineStart(lastLine), store,
+                winOffset + headLen + inserted.length, oldWinEnd - tailStart);
+        storeLen += winLen;
+        textLen += shift;
+        int oldLineCount = lineCount;
+        replaceLines(firstLine, lastLine + 1, winStart, winOffset, winLen, atEnd, shift);
+
+        if (tokStream == null) {
+            changeStart = changeOldEnd = 0;
+            compact();
+            changeNewEnd = tokStream.countToks();
+            return tokStream;
+        }
+
+        // Re-lex the edited lines from their copy, the EOF token is only kept if they are at the end of the text
+        int fromTok = findTok(firstLine + 1);
+        int toTok = atEnd ? tokStream.countToks() : findTok(lastLine + 2);
+        TokenStream.Builder builder = new TokenStream.Builder(new CharBuffer(ByteBuffer.wrap(store)), symbolPool,
+                tokStream.getTypeTable(), INIT_WINDOW_CAPACITY);
+        Lexer lexer = new Lexer(ByteBuffer.wrap(store, 0, winOffset + winLen), winOffset, firstLine + 1,
+                tokStream.getTypeTable(), symbolPool);
+        try {
+            while (lexer.lexNext(builder) != TokenType.EOF) {
+                // Keep lexing until the end of the copy
+            }
+        } catch (SyntaxError e) {
+            tokStream = null;
+            throw e;
+        }
+        if (!atEnd) {
+            builder.removeLast();
+        }
+        TokenStream window = builder.build();
+
+        // Narrow the change down to the tokens that differ, a token that has moved to another line has changed unless
+        // it has moved by the number of lines added like the tokens after the edited lines
+        int lineShift = lineCount - oldLineCount;
+        int oldWinCount = toTok - fromTok;
+        int newWinCount = window.countToks();
+        int minCount = Math.min(oldWinCount, newWinCount);
+        int prefix = 0;
+        while (prefix < minCount && tokStream.isSameTok(fromTok + prefix, window, prefix) &&
+                tokStream.getLine(fromTok + prefix) == window.getLine(prefix)) {
+            ++prefix;
+        }
+        int suffix = 0;
+        while (suffix < minCount - prefix &&
+                tokStream.isSameTok(toTok - 1 - suffix, window, newWinCount - 1 - suffix) &&
+                tokStream.getLine(toTok - 1 - suffix) + lineShift == window.getLine(newWinCount - 1 - suffix)) {
+            ++suffix;
+        }
+        changeStart = fromTok + prefix;
+        changeOldEnd = toTok - suffix;
+        changeNewEnd = fromTok + newWinCount - suffix;
+        tokStream.replace(fromTok, toTok, window, winStart - winOffset, shift, lineShift);
+
+        if (storeLen > COMPACT_RATIO * textLen + MIN_COMPACT_LEN) {
+            compact();
+        }
+        return tokStream;
+    }
+
+    /**
+     * Copies the text in order to a new store and lexes it as a whole. The tokens that refer to the old store are
+     * still valid.
+     *
+     * @throws SyntaxError if there is a syntax error in the text.
+     * @throws IOException if the read operation causes an IO error.
+     */
+    private void compact() throws SyntaxError, IOException {
+        store = getBytes();
+        storeLen = textLen;
+        relex();
+    }
+
+    /**
+     * Lexes the whole text, which must be held in order at the start of the store.
+     *
+     * @throws SyntaxError if there is a syntax error in the text.
+     * @throws IOException if the read operation causes an IO error.
+     */
+    private void relex() throws SyntaxError, IOException {
+        lineStarts = new int[INIT_LINE_CAPACITY];
+        lineOffsets = new int[INIT_LINE_CAPACITY];
+        lineCount = 0;
+        lineGapStart = 0;
+        lineGapLen = INIT_LINE_CAPACITY;
+        lineStartShift = 0;
+        addLine(0, 0);
+        for (int i = 0; i < textLen; ++i) {
+            // '\n' is never part of a multi-byte character
+            if (store[i] == '\n') {
+                addLine(i + 1, i + 1);
+            }
+        }
+        // The tokens are left null if the text cannot be lexed
+        tokStream = null;
+        tokStream = new Lexer(ByteBuffer.wrap(store, 0, textLen), 0, 1, TypeTable.getInstance(), symbolPool)
+                .lexAll();
+    }
+
+    /**
+     * Gets the text in order.
+     *
+     * @return the UTF-8 encoded text.
+     */
+    private byte[] getBytes() {
+        byte[] text = new byte[textLen];
+        for (int i = 0; i < lineCount; ++i) {
+            int start = getLineStart(i);
+            int end = i + 1 < lineCount ? getLineStart(i + 1) : textLen;
+            System.arraycopy(store, getLineOffset(i), text, start, end - start);
+        }
+        return text;
+    }
+
+    private void ensureStoreCapacity(int capacity) {
+        if (capacity > store.length) {
+            store = Arrays.copyOf(store, Math.max(capacity, store.length * 2));
+        }
+    }
+
+    /**
+     * Replaces the checkpoints of a range of lines with those of their edited copy in the store.
+     *
+     * @param from      the index of the first line to be replaced.
+     * @param to        the index after the last line to be replaced.
+     * @param winStart  the position of the copy in the text.
+     * @param winOffset the position of the copy in the store.
+     * @param winLen    the length of the copy.
+     * @param atEnd     whether the copy is at the end of the text, in which case a line break at its end starts a
+     *                  new line.
+     * @param shift     the number of bytes added by the edit.
+     */
+    private void replaceLines(int from, int to, int winStart, int winOffset, int winLen, boolean atEnd,
+                              int shift) {
+        moveLineGap(from);
+        lineGapLen += to - from;
+        lineCount -= to - from;
+        addLine(winStart, winOffset);
+        for (int i = 0; i < winLen; ++i) {
+            if (store[winOffset + i] == '\n' && (i + 1 < winLen || atEnd)) {
+                addLine(winStart + i + 1, winOffset + i + 1);
+            }
+        }
+        lineStartShift += shift;
+    }
+
+    /**
+     * Adds a checkpoint before the gap.
+     *
+     * @param start  the position of the line in the text.
+     * @param offset the position of the line in the store.
+     */
+    private void addLine(int start, int offset) {
+        if (lineGapLen == 0) {
+            int capacity = lineStarts.length * 2;
+            int numAfterGap = lineCount - lineGapStart;
+            int[] newStarts = Arrays.copyOf(lineStarts, capacity);
+            int[] newOffsets = Arrays.copyOf(lineOffsets, capacity);
+            System.arraycopy(lineStarts, lineGapStart, newStarts, capacity - numAfterGap, numAfterGap);
+            System.arraycopy(lineOffsets, lineGapStart, newOffsets, capacity - numAfterGap, numAfterGap);
+            lineStarts = newStarts;
+            lineOffsets = newOffsets;
+            lineGapLen = capacity - lineCount;
+        }
+        lineStarts[lineGapStart] = start;
+        lineOffsets[lineGapStart] = offset;
+        ++lineGapStart;
+        --lineGapLen;
+        ++lineCount;
+    }
+
+    /**
+     * Moves the gap in the checkpoints so that it starts before a line, adding the pending bytes to the lines that
+     * end up before the gap and removing them from those that end up after it.
+     *
+     * @param to the index of the line.
+     */
+    private void moveLineGap(int to) {
+        if (to < lineGapStart) {
+            int n = lineGapStart - to;
+            System.arraycopy(lineStarts, to, lineStarts, to + lineGapLen, n);
+            System.arraycopy(lineOffsets, to, lineOffsets, to + lineGapLen, n);
+            for (int i = to + lineGapLen; i < lineGapStart + lineGapLen; ++i) {
+                lineStarts[i] -= lineStartShift;
+            }
+        } else if (to > lineGapStart) {
+            int n = to - lineGapStart;
+            System.arraycopy(lineStarts, lineGapStart + lineGapLen, lineStarts, lineGapStart, n);
+            System.arraycopy(lineOffsets, lineGapStart + lineGapLen, lineOffsets, lineGapStart, n);
+            for (int i = lineGapStart; i < to; ++i) {
+                lineStarts[i] += lineStartShift;
+            }
+        }
+        lineGapStart = to;
+    }
+
+    private int getLineStart(int line) {
+        return line < lineGapStart ? lineStarts[line] : lineStarts[line + lineGapLen] + lineStartShift;
+    }
+
+    private int getLineOffset(int line) {
+        return lineOffsets[line < lineGapStart ? line : line + lineGapLen];
+    }
+
+    /**
+     * Finds the line that contains a position.
+     *
+     * @param pos the position in the text.
+     * @return the index of the line.
+     */
+    private int findLine(int pos) {
+        int lo = 0;
+        int hi = lineCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (getLineStart(mid) <= pos) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Finds the first token on or after a line.
+     *
+     * @param line the line.
+     * @return the index of the token.
+     */
+    private int findTok(int line) {
+        int lo = 0;
+        int hi = tokStream.countToks() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (tokStream.getLine(mid) < line) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
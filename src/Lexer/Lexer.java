@@ -1,28 +1,169 @@
 package Lexer;
 
 import Exceptions.SyntaxError;
-import Keywords.KeywordTable;
-import Operators.OperatorTable;
+import Symbols.SymbolPool;
 import Tokens.Token;
+import Tokens.TokenSrc;
 import Tokens.TokenType;
 import Types.TypeTable;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.ArrayDeque;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 public class Lexer {
     private final CharBuffer charBuff;
-    private final ArrayDeque<Token> tokBuff = new ArrayDeque<>();
-    private final OperatorTable opTable = OperatorTable.getInstance();
-    private final KeywordTable kwTable = KeywordTable.getInstance();
-    private final TypeTable typeTable = TypeTable.getInstance();
+    // The types that the lexer recognizes, the parsers that read from the lexer resolve type ids against them
+    private final TypeTable typeTable;
+    private final TokenDfa dfa;
+    private final SymbolPool symbolPool;
     private final static String SPECIAL_CHARS = "(){}+-*/%~!&|<>=,.;:_";
     private final static int EOS = -1;
     private int currLine = 1;
+    // Type, position, line, text and symbol id of the last token scanned from the buffer
+    // The text is null if the token can be sliced from the source
+    private TokenType tokType;
+    private int tokStart;
+    private int tokLine;
+    private String tokStr;
+    private int tokSymbolId;
+    private long tokNumBits;
+    // The mantissa, decimal exponent and decimal point of the last part of a number that has been scanned
+    // The mantissa is only exact if no non-zero digits had to be dropped for it to fit in a long
+    private long numMantissa;
+    private int numExp10;
+    private boolean numExact;
+    private boolean numHasDecPt;
+    // Powers of 10 that are exactly representable as doubles
+    private final static double[] EXACT_POWERS_OF_10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // Pre-lexed tokens when the lexer walks a token stream instead of a buffer, null otherwise
+    private final TokenStream tokStream;
+    // Ring of tokens that have been scanned but not consumed yet, or consumed after the oldest mark
+    // The columns are indexed by a token's position in the source's token sequence masked by the ring's capacity,
+    // which is always a power of two
+    private final static int INIT_RING_CAPACITY = 8;
+    private TokenType[] ringTypes = new TokenType[INIT_RING_CAPACITY];
+    private int[] ringStarts = new int[INIT_RING_CAPACITY];
+    private int[] ringLengths = new int[INIT_RING_CAPACITY];
+    private int[] ringLines = new int[INIT_RING_CAPACITY];
+    private int[] ringSymbolIds = new int[INIT_RING_CAPACITY];
+    private long[] ringNumBits = new long[INIT_RING_CAPACITY];
+    private String[] ringStrs = new String[INIT_RING_CAPACITY];
+    // Token objects created for the tokens in the ring, reused after rewinding
+    private Token[] ringToks = new Token[INIT_RING_CAPACITY];
+    // head is the position of the next token to be consumed, tail is the position after the last scanned token
+    private int head = 0;
+    private int tail = 0;
+    // Stack of positions saved by mark()
+    private int[] marks = new int[4];
+    private int numMarks = 0;
 
     public Lexer(BufferedReader reader) {
+        this(reader, TypeTable.getInstance());
+    }
+
+    /**
+     * Creates a lexer that reads from a reader and recognizes the types of a type table, which may have been extended
+     * for this lexer.
+     *
+     * @param reader    the reader of the source.
+     * @param typeTable the type table.
+     */
+    public Lexer(BufferedReader reader, TypeTable typeTable) {
         this.charBuff = new CharBuffer(reader);
+        this.symbolPool = new SymbolPool();
+        this.tokStream = null;
+        this.typeTable = typeTable;
+        this.dfa = TokenDfa.getInstance(typeTable);
+    }
+
+    /**
+     * Creates a lexer that reads UTF-8 encoded source directly from memory.
+     *
+     * @param bytes the buffer that holds the source.
+     */
+    public Lexer(ByteBuffer bytes) {
+        this(bytes, TypeTable.getInstance());
+    }
+
+    /**
+     * Creates a lexer that reads UTF-8 encoded source directly from memory and recognizes the types of a type table,
+     * which may have been extended for this lexer.
+     *
+     * @param bytes     the buffer that holds the source.
+     * @param typeTable the type table.
+     */
+    public Lexer(ByteBuffer bytes, TypeTable typeTable) {
+        this(bytes, typeTable, new SymbolPool());
+    }
+
+    /**
+     * Creates a lexer that reads UTF-8 encoded source directly from memory and interns IDs into an existing pool,
+     * which is usually forked from the pool of a shared global environment.
+     *
+     * @param bytes      the buffer that holds the source.
+     * @param typeTable  the type table.
+     * @param symbolPool the pool to intern IDs into.
+     */
+    public Lexer(ByteBuffer bytes, TypeTable typeTable, SymbolPool symbolPool) {
+        this.charBuff = new CharBuffer(bytes);
+        this.symbolPool = symbolPool;
+        this.tokStream = null;
+        this.typeTable = typeTable;
+        this.dfa = TokenDfa.getInstance(typeTable);
+    }
+
+    /**
+     * Creates a lexer that resumes reading UTF-8 encoded source from memory at a line boundary, interning IDs into
+     * an existing pool.
+     *
+     * @param bytes      the buffer that holds the source.
+     * @param pos        the position of the first character to be read, must not be inside a token.
+     * @param line       the line that contains the given position.
+     * @param typeTable  the type table.
+     * @param symbolPool the pool to intern IDs into.
+     */
+    Lexer(ByteBuffer bytes, int pos, int line, TypeTable typeTable, SymbolPool symbolPool) {
+        this.charBuff = new CharBuffer(bytes, pos);
+        this.symbolPool = symbolPool;
+        this.tokStream = null;
+        this.currLine = line;
+        this.typeTable = typeTable;
+        this.dfa = TokenDfa.getInstance(typeTable);
+    }
+
+    /**
+     * Creates a lexer that maps a UTF-8 encoded file into memory and reads from it without copying. The mapping stays
+     * valid after the channel is closed.
+     *
+     * @param channel the channel of the file to be mapped.
+     * @throws IOException if the file cannot be mapped.
+     */
+    public Lexer(FileChannel channel) throws IOException {
+        this(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+
+    /**
+     * Creates a lexer that walks a pre-lexed token stream with a cursor instead of reading characters. Several lexers
+     * can walk the same stream, each with its own cursor.
+     *
+     * @param tokStream the stream of tokens.
+     */
+    public Lexer(TokenStream tokStream) {
+        this.charBuff = null;
+        this.symbolPool = tokStream.getSymbolPool();
+        this.tokStream = tokStream;
+        this.typeTable = tokStream.getTypeTable();
+        this.dfa = TokenDfa.getInstance(typeTable);
+    }
+
+    public TypeTable getTypeTable() {
+        return typeTable;
     }
 
     /**
@@ -34,6 +175,15 @@ public class Lexer {
         return currLine;
     }
 
+    /**
+     * Gets the pool in which the names of ID tokens are interned.
+     *
+     * @return the lexer's symbol pool.
+     */
+    public SymbolPool getSymbolPool() {
+        return symbolPool;
+    }
+
     /**
      * Skips the spaces until a non-space character is encountered.
      *
@@ -41,6 +191,10 @@ public class Lexer {
      */
     private void skipSpaces() throws IOException {
         int c;
+        if (charBuff.isInMemory()) {
+            // Skip the ASCII spaces in bulk and only classify the other characters one by one
+            currLine += charBuff.skipAsciiSpaces();
+        }
         while ((c = charBuff.peek()) != EOS && isSpace(c)) {
             if (c == '\n') {
                 ++currLine;
@@ -97,9 +251,12 @@ public class Lexer {
      * @throws IOException if the read operation causes an IO error.
      */
     public Token consume() throws SyntaxError, IOException {
-        Token tok = lookahead();
-        tokBuff.removeFirst();
-        return tok;
+        int slot = fillSlot(0);
+        // The EOF token is never removed so it stays as the next token
+        if (ringTypes[slot] != TokenType.EOF) {
+            ++head;
+        }
+        return getRingTok(slot);
     }
 
     /**
@@ -110,276 +267,525 @@ public class Lexer {
      * @throws IOException if the read operation causes an IO error.
      */
     public Token lookahead() throws SyntaxError, IOException {
-        // Reads from the token buffer before extracting characters from the stream
-        if (!tokBuff.isEmpty()) {
-            return tokBuff.peekFirst();
+        return lookahead(0);
+    }
+
+    /**
+     * Looks ahead to a token after the next one without removing any token from the stream.
+     *
+     * @param k the number of tokens to skip, 0 for the next token.
+     * @return the token k tokens after the next one, or the EOF token if the stream ends before it.
+     * @throws SyntaxError if there is a syntax error.
+     * @throws IOException if the read operation causes an IO error.
+     */
+    public Token lookahead(int k) throws SyntaxError, IOException {
+        return getRingTok(fillSlot(k));
+    }
+
+    /**
+     * Looks ahead to the type of the next token without creating a token object.
+     *
+     * @return the type of the next token.
+     * @throws SyntaxError if there is a syntax error.
+     * @throws IOException if the read operation causes an IO error.
+     */
+    public TokenType peekType() throws SyntaxError, IOException {
+        return peek(0);
+    }
+
+    /**
+     * Looks ahead to the type of a token after the next one without creating a token object.
+     *
+     * @param k the number of tokens to skip, 0 for the next token.
+     * @return the type of the token k tokens after the next one, or EOF if the stream ends before it.
+     * @throws SyntaxError if there is a syntax error.
+     * @throws IOException if the read operation causes an IO error.
+     */
+    public TokenType peek(int k) throws SyntaxError, IOException {
+        // The ring may grow while it is being filled
+        int slot = fillSlot(k);
+        return ringTypes[slot];
+    }
+
+    /**
+     * Marks the position of the next token so that the tokens consumed after it can be consumed again after calling
+     * rewind(). Marks can be nested, each one is removed by either rewind() or release().
+     */
+    public void mark() {
+        if (numMarks == marks.length) {
+            marks = Arrays.copyOf(marks, numMarks * 2);
+        }
+        marks[numMarks++] = head;
+    }
+
+    /**
+     * Moves back to the latest mark and removes it. The tokens are not scanned again and the same token objects are
+     * returned.
+     */
+    public void rewind() throws IllegalStateException {
+        if (numMarks == 0) {
+            throw new IllegalStateException("Cannot rewind the lexer without a mark");
+        }
+        head = marks[--numMarks];
+    }
+
+    /**
+     * Removes the latest mark without moving back so that the tokens before the next one can be discarded.
+     */
+    public void release() throws IllegalStateException {
+        if (numMarks == 0) {
+            throw new IllegalStateException("Cannot release a mark that does not exist");
+        }
+        --numMarks;
+    }
+
+    /**
+     * Gets the position of the next token in the source's sequence of tokens, which is its index in the token stream
+     * if the lexer walks one.
+     *
+     * @return the position of the next token.
+     */
+    public int getTokIndex() {
+        return head;
+    }
+
+    /**
+     * Moves a lexer that walks a token stream to a token, dropping the tokens that have been looked ahead to.
+     *
+     * @param index the index of the token in the stream.
+     * @throws IllegalStateException if the lexer does not walk a token stream or a mark is held.
+     */
+    public void seek(int index) throws IllegalStateException {
+        if (tokStream == null || numMarks > 0) {
+            throw new IllegalStateException("Only a lexer that walks a token stream without marks can seek");
         }
+        head = tail = Math.min(index, tokStream.countToks() - 1);
+        // The line is the same as if the tokens before the index had been scanned
+        currLine = head == 0 ? 1 : tokStream.getLine(head - 1);
+    }
 
+    /**
+     * Scans tokens into the ring until it holds the token k tokens after the next one.
+     *
+     * @param k the number of tokens to skip, 0 for the next token.
+     * @return the slot of the token in the ring, or the slot of the EOF token if the stream ends before it.
+     * @throws SyntaxError if there is a syntax error.
+     * @throws IOException if the read operation causes an IO error.
+     */
+    private int fillSlot(int k) throws SyntaxError, IOException {
+        int pos = head + k;
+        while (tail <= pos) {
+            // The EOF token is always the last one in the ring
+            if (tail > head && ringTypes[(tail - 1) & (ringTypes.length - 1)] == TokenType.EOF) {
+                return (tail - 1) & (ringTypes.length - 1);
+            }
+            scanIntoRing();
+        }
+        return pos & (ringTypes.length - 1);
+    }
+
+    /**
+     * Scans the next token from the buffer, or reads it from the token stream, into the ring.
+     *
+     * @throws SyntaxError if there is a syntax error.
+     * @throws IOException if the read operation causes an IO error.
+     */
+    private void scanIntoRing() throws SyntaxError, IOException {
+        int keepFrom = numMarks > 0 ? marks[0] : head;
+        if (tail - keepFrom == ringTypes.length) {
+            growRing(keepFrom);
+        }
+        int slot = tail & (ringTypes.length - 1);
+        if (tokStream != null) {
+            // Tokens in the ring refer to their text in the stream's source
+            ringTypes[slot] = tokStream.getType(tail);
+            ringStarts[slot] = tokStream.getOffset(tail);
+            ringLengths[slot] = tokStream.getLength(tail);
+            ringLines[slot] = currLine = tokStream.getLine(tail);
+            ringSymbolIds[slot] = tokStream.getSymbolId(tail);
+            ringNumBits[slot] = tokStream.getIntValue(tail);
+            ringStrs[slot] = null;
+        } else {
+            scanTok();
+            ringTypes[slot] = tokType;
+            ringStarts[slot] = tokStart;
+            ringLengths[slot] = charBuff.getPos() - tokStart;
+            ringLines[slot] = tokLine;
+            ringSymbolIds[slot] = tokSymbolId;
+            ringNumBits[slot] = tokNumBits;
+            ringStrs[slot] = tokStr;
+        }
+        ringToks[slot] = null;
+        ++tail;
+    }
+
+    /**
+     * Gets the token object for a slot in the ring, creating it the first time it is needed.
+     *
+     * @param slot the slot in the ring.
+     * @return the token in the slot.
+     */
+    private Token getRingTok(int slot) {
+        Token tok = ringToks[slot];
+        if (tok != null) {
+            return tok;
+        }
+        TokenType type = ringTypes[slot];
+        boolean isNum = type == TokenType.INT_LITERAL || type == TokenType.FLOAT_LITERAL;
+        String str = ringStrs[slot];
+        if (type == TokenType.EOF) {
+            tok = new Token(null, type, ringLines[slot]);
+        } else if (str != null) {
+            tok = isNum ? Token.ofNumber(str, type, ringLines[slot], ringNumBits[slot]) :
+                    new Token(str, type, ringLines[slot], ringSymbolIds[slot]);
+        } else {
+            // The source stays in memory so the string is only built if it is needed
+            TokenSrc src = tokStream != null ? tokStream.getSrc() : charBuff;
+            tok = isNum ? Token.ofNumber(src, ringStarts[slot], ringLengths[slot], type, ringLines[slot],
+                    ringNumBits[slot]) :
+                    new Token(src, ringStarts[slot], ringLengths[slot], type, ringLines[slot], ringSymbolIds[slot]);
+        }
+        ringToks[slot] = tok;
+        return tok;
+    }
+
+    /**
+     * Doubles the capacity of the ring while keeping the tokens from the given position to the tail.
+     *
+     * @param keepFrom the position of the first token to be kept.
+     */
+    private void growRing(int keepFrom) {
+        int capacity = ringTypes.length << 1;
+        TokenType[] types = new TokenType[capacity];
+        int[] starts = new int[capacity];
+        int[] lengths = new int[capacity];
+        int[] lines = new int[capacity];
+        int[] symbolIds = new int[capacity];
+        long[] numBits = new long[capacity];
+        String[] strs = new String[capacity];
+        Token[] toks = new Token[capacity];
+        int oldMask = ringTypes.length - 1;
+        int newMask = capacity - 1;
+        for (int pos = keepFrom; pos != tail; ++pos) {
+            int oldSlot = pos & oldMask;
+            int newSlot = pos & newMask;
+            types[newSlot] = ringTypes[oldSlot];
+            starts[newSlot] = ringStarts[oldSlot];
+            lengths[newSlot] = ringLengths[oldSlot];
+            lines[newSlot] = ringLines[oldSlot];
+            symbolIds[newSlot] = ringSymbolIds[oldSlot];
+            numBits[newSlot] = ringNumBits[oldSlot];
+            strs[newSlot] = ringStrs[oldSlot];
+            toks[newSlot] = ringToks[oldSlot];
+        }
+        ringTypes = types;
+        ringStarts = starts;
+        ringLengths = lengths;
+        ringLines = lines;
+        ringSymbolIds = symbolIds;
+        ringNumBits = numBits;
+        ringStrs = strs;
+        ringToks = toks;
+    }
+
+    /**
+     * Lexes the rest of the source up front into a token stream whose tokens refer to the source by position.
+     * Syntax errors in the source are therefore reported before any of it is parsed.
+     *
+     * @return a stream of tokens ending with an EOF token.
+     * @throws SyntaxError if there is a syntax error.
+     * @throws IOException if the read operation causes an IO error.
+     */
+    public TokenStream lexAll() throws SyntaxError, IOException {
+        if (tokStream != null) {
+            return tokStream;
+        }
+        if (!charBuff.isInMemory() || tail != head) {
+            throw new IllegalStateException("Only a source in memory can be lexed into a token stream");
+        }
+        TokenStream.Builder builder = new TokenStream.Builder(charBuff, symbolPool, typeTable);
+        TokenType type;
+        do {
+            type = lexNext(builder);
+        } while (type != TokenType.EOF);
+        return builder.build();
+    }
+
+    /**
+     * Scans the next token from the buffer and adds it to the end of a token stream.
+     *
+     * @param builder the builder of the token stream.
+     * @return the type of the token that has been added.
+     * @throws SyntaxError if there is a syntax error.
+     * @throws IOException if the read operation causes an IO error.
+     */
+    TokenType lexNext(TokenStream.Builder builder) throws SyntaxError, IOException {
+        scanTok();
+        builder.add(tokType, tokStart, charBuff.getPos() - tokStart, tokLine, tokSymbolId, tokNumBits);
+        return tokType;
+    }
+
+    /**
+     * Scans the next token from the buffer and stores its type, position, line, text and symbol id in the lexer
+     * instead of creating a token object.
+     *
+     * @throws SyntaxError if there is a syntax error.
+     * @throws IOException if the read operation causes an IO error.
+     */
+    private void scanTok() throws SyntaxError, IOException {
         skipSpaces();
 
+        tokStart = charBuff.getPos();
+        tokLine = currLine;
+        tokStr = null;
+        tokSymbolId = -1;
+        tokNumBits = 0;
+
         // Check if the token is EOF
         if (charBuff.peek() == EOS) {
-            return new Token(null, TokenType.EOF);
+            tokType = TokenType.EOF;
+            return;
         }
-        // Check if the token consists of only alphanumerics or underscores
-        Token tok = getAlnumUnderscore();
-        if (tok != null) {
-            String tokStr = tok.getValue();
-            // Check if the token is a keyword, if it is, change its token type
-            TokenType tokType = kwTable.getId(tokStr);
-            if (tokType != null) {
-                tok.setType(tokType);
-                tokBuff.addLast(tok);
-                return tok;
-            }
-            // Check if the token is a data type, if it is, change its token type
-            if (typeTable.getType(tokStr) != null) {
-                tok.setType(TokenType.TYPE_ID);
-                tokBuff.addLast(tok);
-                return tok;
-            }
-            // Otherwise, the token must be an ID
-            tok.setType(TokenType.ID);
-            tokBuff.addLast(tok);
-            return tok;
+        // Check if the token consists of only alphanumerics or underscores, it can be a keyword, a type or an ID
+        if (scanAlnumUnderscore()) {
+            return;
         }
         // Check if the token is a scientific real number
-        tok = getScientificNum();
-        if (tok != null) {
-            tokBuff.addLast(tok);
-            return tok;
+        if (scanNum()) {
+            return;
         }
         // Check if the token is an operator
-        tok = getOp();
-        if (tok != null) {
-            tokBuff.addLast(tok);
-            return tok;
+        if (scanOp()) {
+            return;
         }
         throw new SyntaxError("Unable to get next token because of invalid syntax at '" +
                 (char) charBuff.peek() + "'", getCurrLine());
     }
 
     /**
-     * Reads alphanumeric and underscore characters into a string and stores it in a token.
+     * Scans alphanumeric and underscore characters. The token's type is determined by running the characters through
+     * the DFA, so it is either a keyword, a type, or an ID.
      * Grammar: ('_' | ('a'-'z') | ('A'-'Z'))('_' | ('a'-'z') | ('A'-'Z') | ('0'-'9'))*
      *
-     * @return a token containing a string of alphanumeric and underscore characters.
+     * @return true if a string of alphanumeric and underscore characters has been scanned and false otherwise.
      * @throws IOException if the read operation causes an error.
      * @throws SyntaxError if there is an invalid character.
      */
-    private Token getAlnumUnderscore() throws IOException, SyntaxError {
+    private boolean scanAlnumUnderscore() throws IOException, SyntaxError {
         int c;
 
         // Check if the first character is end of stream or a letter or '_'
         if ((c = charBuff.peek()) == EOS || (!Character.isAlphabetic(c) && c != '_')) {
-            return null;
+            return false;
         }
 
-        StringBuilder tokStr = new StringBuilder();
+        // Keep the characters in the buffer so that the string can be extracted at the end
+        charBuff.mark();
+        int state = TokenDfa.START_STATE;
         boolean end = false;
 
         // Consume the character from the stream until it is a separator or a valid special character
         while (!isSep(c) && !end) {
             if (isAlnumUnderscore(c)) {
-                tokStr.append((char) c);
+                state = dfa.next(state, c);
                 charBuff.read();
+                if (state == TokenDfa.ID_STATE && charBuff.isInMemory()) {
+                    // The ID can no longer be a keyword or a type so the rest of it can be skipped in bulk
+                    charBuff.skipAsciiIdChars();
+                }
             } else if (isSpecialChar(c)) {
                 end = true;
             } else {
-                throw new SyntaxError("Invalid character '" + c + "' after '" + tokStr + "'", getCurrLine());
+                throw new SyntaxError("Invalid character '" + c + "' after '" + charBuff.getStr(tokStart) + "'",
+                        getCurrLine());
             }
             c = charBuff.peek();
         }
 
-        // The string cannot be empty
-        return new Token(tokStr.toString(), TokenType.UNKNOWN, currLine);
+        // The string cannot be empty, reuse the string from the tables if it is a keyword or a type
+        tokType = dfa.getAcceptType(state);
+        tokStr = dfa.getAcceptStr(state);
+        if (tokStr == null) {
+            // Intern the ID without copying it out of the buffer unless it is new
+            tokSymbolId = symbolPool.intern(charBuff, tokStart, charBuff.getPos() - tokStart);
+            if (!charBuff.isInMemory()) {
+                tokStr = symbolPool.getName(tokSymbolId);
+            }
+        }
+        charBuff.clearMark();
+        return true;
     }
 
     /**
-     * Reads an operator (can be multiple characters) and creates a token that stores the operator if the operation
-     * succeeds.
+     * Scans an operator (can be multiple characters).
      *
-     * @return a token that stores the operator.
+     * @return true if an operator has been scanned and false otherwise.
      * @throws IOException if the read operation causes an error.
      */
-    private Token getOp() throws IOException {
+    private boolean scanOp() throws IOException {
         int c;
-        StringBuilder tokStr = new StringBuilder();
-        String tmpStr;
-        TokenType tmpTokType, opId = TokenType.UNKNOWN;
+        int state = TokenDfa.START_STATE;
+        int nextState;
         boolean end = false;
 
         while ((c = charBuff.peek()) != EOS && !end) {
-            tmpStr = tokStr.toString() + (char) c;
-            // Find the token type corresponding to the string
-            tmpTokType = opTable.getId(tmpStr);
-            end = tmpTokType == null;
+            // The operator can be extended as long as the DFA moves to a state that accepts an operator
+            nextState = dfa.next(state, c);
+            end = dfa.getAcceptType(nextState) == null;
             if (!end) {
-                tokStr.append((char) c);
-                opId = tmpTokType;
+                state = nextState;
                 charBuff.read();
             }
         }
-        if (tokStr.isEmpty()) {
-            return null;
+        if (state == TokenDfa.START_STATE) {
+            return false;
         }
-        return new Token(tokStr.toString(), opId, currLine);
+        tokType = dfa.getAcceptType(state);
+        tokStr = dfa.getAcceptStr(state);
+        return true;
     }
 
     /**
-     * Reads a string and stores it in a new token if it matches the given string. Otherwise, it puts everything
-     * that has been read back to the buffer.
+     * Scans a scientific floating-point number in a single pass and computes its value. The characters are only
+     * extracted from the buffer if the source is not in memory or if the value cannot be computed exactly.
+     * Grammar: (('0'-'9')+ | ('0'-'9')*'.'('0'-'9')*)('e' ('+' | '-')?(('0'-'9')+ | ('0'-'9')*'.'('0'-'9')*))?
      *
-     * @param strToMatch the string to match.
-     * @param tokType    the type of the token to assign if one is present.
-     * @return a token containing the string if the operation succeeds and null otherwise.
-     * @throws IOException if there is an error while reading.
+     * @return true if a number has been scanned and false otherwise.
+     * @throws SyntaxError if the numeric expression is invalid.
+     * @throws IOException if the read operation causes an error.
      */
-    private Token getStrTok(String strToMatch, TokenType tokType) throws IOException {
-        int c;
-        int i = 0;
-        boolean end = false;
-        StringBuilder buffer = new StringBuilder();
+    private boolean scanNum() throws IOException, SyntaxError {
+        // Keep the characters in the buffer in case the string is needed
+        charBuff.mark();
+        if (!scanNumPart()) {
+            charBuff.clearMark();
+            return false;
+        }
 
-        while (i < strToMatch.length() && (c = charBuff.peek()) != EOS && !end) {
-            end = (char) c != strToMatch.charAt(i);
-            if (!end) {
-                buffer.append((char) c);
-                ++i;
+        long mantissa = numMantissa;
+        int exp10 = numExp10;
+        boolean exact = numExact;
+        boolean isFloat = numHasDecPt;
+        int c = charBuff.peek();
+        if (c != 'e') {
+            if (c != EOS && !isSpace(c) && (!isSpecialChar(c) || c == '.')) {
+                throw new SyntaxError("Invalid numeric expression after '" + getNumStr() + "'", getCurrLine());
+            }
+        } else {
+            isFloat = true;
+            charBuff.read();
+            boolean negExp = false;
+            if ((c = charBuff.peek()) == '+' || c == '-') {
+                negExp = c == '-';
                 charBuff.read();
             }
+            if (!scanNumPart()) {
+                throw new SyntaxError("Invalid numeric expression after '" + getNumStr() + "'", getCurrLine());
+            }
+            if (numHasDecPt) {
+                // The exponent has a fraction so the value cannot be scaled by a power of 10
+                exact = false;
+            } else if (numExact && numExp10 == 0 && numMantissa <= EXACT_POWERS_OF_10.length) {
+                exp10 += negExp ? -numMantissa : numMantissa;
+            } else {
+                exact = false;
+            }
         }
 
-        if (!strToMatch.contentEquals(buffer)) {
-            // Put back what has been read
-            if (!buffer.isEmpty()) {
-                charBuff.putBack(buffer.toString());
+        if (isFloat) {
+            tokType = TokenType.FLOAT_LITERAL;
+            double value;
+            if (exact && mantissa < 1L << 53 && Math.abs(exp10) < EXACT_POWERS_OF_10.length) {
+                // Both the mantissa and the power of 10 are exact so the result is rounded correctly
+                value = exp10 < 0 ? mantissa / EXACT_POWERS_OF_10[-exp10] : mantissa * EXACT_POWERS_OF_10[exp10];
+            } else {
+                value = Token.parseFloatLiteral(charBuff.getStr(tokStart));
             }
-            return null;
+            tokNumBits = Double.doubleToRawLongBits(value);
+        } else {
+            tokType = TokenType.INT_LITERAL;
+            tokNumBits = exact && exp10 == 0 ? mantissa : Token.parseIntLiteral(charBuff.getStr(tokStart));
         }
-
-        return new Token(strToMatch, tokType, currLine);
+        if (!charBuff.isInMemory()) {
+            tokStr = getNumStr();
+        }
+        charBuff.clearMark();
+        return true;
     }
 
     /**
-     * Reads a sequence of digits, adds them to a string and creates a token that contains
-     * the string if successful.
-     * Grammar: ('0'-'9')+
+     * Scans the digits and decimal point of a number, either the mantissa or the exponent, and computes its value.
+     * Grammar: ('0'-'9')+ | ('0'-'9')*'.'('0'-'9')*
      *
-     * @return a token containing a sequence of digits.
+     * @return true if the part of the number has been scanned and false otherwise.
      * @throws IOException if the read operation causes an error.
      */
-    private Token getDigits() throws IOException {
-        int c;
-        StringBuilder tokStr = new StringBuilder();
-
-        while ((c = charBuff.peek()) != EOS && Character.isDigit(c)) {
-            tokStr.append((char) c);
+    private boolean scanNumPart() throws IOException {
+        numMantissa = 0;
+        numExp10 = 0;
+        numExact = true;
+        numHasDecPt = false;
+        boolean hasInt = scanDigits(false);
+        if (charBuff.peek() == '.') {
             charBuff.read();
+            numHasDecPt = true;
+            scanDigits(true);
         }
-
-        if (tokStr.isEmpty()) {
-            return null;
-        }
-
-        return new Token(tokStr.toString(), TokenType.INT_LITERAL, currLine);
+        return hasInt || numHasDecPt;
     }
 
     /**
-     * Reads a floating-point number and stores it in a new token if one exists.
-     * Grammar: ('0'-'9')+ | ('0'-'9')*'.'('0'-'9')*
+     * Scans a sequence of digits and adds them to the mantissa of the number.
+     * Grammar: ('0'-'9')*
      *
-     * @return a token containing the floating-point number.
+     * @param isFrac whether the digits are after the decimal point.
+     * @return true if there is at least one digit and false otherwise.
      * @throws IOException if the read operation causes an error.
      */
-    private Token getNum() throws IOException {
-        StringBuilder tokStr = new StringBuilder();
-
-        // Reads the integer part
-        Token intTok = getDigits();
-        boolean missingInt = intTok == null;
-        if (missingInt) {
-            tokStr.append("0");
-        } else {
-            tokStr.append(intTok.getValue());
-        }
-
-        // Reads '.'
-        Token decPtTok = getStrTok(".", TokenType.UNKNOWN);
-        boolean missingDecPt = decPtTok == null;
-        if (!missingDecPt) {
-            tokStr.append(".");
-        }
-
-        if (missingInt && missingDecPt) {
-            return null;
-        }
-
-        // Reads the fraction part if there is a decimal point
-        if (!missingDecPt) {
-            Token fracTok = getDigits();
-            if (fracTok == null) {
-                tokStr.append("0");
-            } else {
-                tokStr.append(fracTok.getValue());
+    private boolean scanDigits(boolean isFrac) throws IOException {
+        int from = charBuff.getPos();
+        if (charBuff.isInMemory()) {
+            // Find the ASCII digits in bulk and only classify the other characters one by one
+            charBuff.skipAsciiDigits();
+            for (int i = from; i < charBuff.getPos(); ++i) {
+                addDigit(charBuff.getByte(i) - '0', isFrac);
             }
         }
-
-        TokenType tokType = missingDecPt ? TokenType.INT_LITERAL : TokenType.FLOAT_LITERAL;
-        return new Token(tokStr.toString(), tokType, currLine);
+        int c;
+        while ((c = charBuff.peek()) != EOS && Character.isDigit(c)) {
+            addDigit(Character.digit(c, 10), isFrac);
+            charBuff.read();
+        }
+        return charBuff.getPos() != from;
     }
 
     /**
-     * Reads a scientific floating-point number and stores it in a new token if one exists.
-     * Grammar: (('0'-'9')+ | ('0'-'9')*'.'('0'-'9')*)('.' 'e' ('+' | '-')?(('0'-'9')+ | ('0'-'9')*'.'('0'-'9')*))?
+     * Adds a digit to the mantissa of the number, or to its decimal exponent once the mantissa is full.
      *
-     * @return a token containing the scientific floating-point number.
-     * @throws SyntaxError if the numeric expression is invalid.
-     * @throws IOException if the read operation causes an error.
+     * @param digit  the digit's value.
+     * @param isFrac whether the digit is after the decimal point.
      */
-    private Token getScientificNum() throws IOException, SyntaxError {
-        skipSpaces();
-
-        // Get a floating-point number
-        Token tmpTok = getNum();
-        if (tmpTok == null) {
-            return null;
-        }
-
-        int c;
-        StringBuilder tokStr = new StringBuilder();
-        TokenType tokType = tmpTok.getType();
-
-        tokStr.append(tmpTok.getValue());
-        // Get 'e'
-        tmpTok = getStrTok("e", TokenType.UNKNOWN);
-        if (tmpTok == null) {
-            if ((c = charBuff.peek()) == EOS || isSpace(c) || isSpecialChar(c) && c != '.') {
-                return new Token(tokStr.toString(), tokType, currLine);
-            } else {
-                throw new SyntaxError("Invalid numeric expression after '" + tokStr + "'", getCurrLine());
-            }
-        }
-        tokStr.append("e");
-
-        // Get +/-
-        tmpTok = getStrTok("+", TokenType.UNKNOWN);
-        if (tmpTok == null) {
-            // Reads '-' if '+' is not present
-            tmpTok = getStrTok("-", TokenType.UNKNOWN);
-            if (tmpTok != null) {
-                tokStr.append(tmpTok.getValue());
+    private void addDigit(int digit, boolean isFrac) {
+        if (numMantissa <= (Long.MAX_VALUE - 9) / 10) {
+            numMantissa = numMantissa * 10 + digit;
+            if (isFrac) {
+                --numExp10;
             }
         } else {
-            tokStr.append(tmpTok.getValue());
+            // The digit is dropped, which only changes the value if it is not 0
+            numExact &= digit == 0;
+            if (!isFrac) {
+                ++numExp10;
+            }
         }
+    }
 
-        // Get the exponent
-        tmpTok = getNum();
-        if (tmpTok == null) {
-            throw new SyntaxError("Invalid numeric expression after '" + tokStr + "'", getCurrLine());
-        }
-        tokStr.append(tmpTok.getValue());
-        return new Token(tokStr.toString(), TokenType.FLOAT_LITERAL, currLine);
+    /**
+     * Gets the text of the number that has been scanned so far with the omitted digits filled in.
+     *
+     * @return the normalized text of the number.
+     */
+    private String getNumStr() {
+        return Token.normalizeNum(charBuff.getStr(tokStart));
     }
 }
@@ -1,14 +1,21 @@
 package Lexer;
 
 import Exceptions.SyntaxError;
+import Keywords.KeywordTable;
+import Operators.OperatorTable;
 import Tokens.Token;
 import Tokens.TokenType;
+import Types.TypeTable;
 import org.junit.jupiter.api.Test;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -115,4 +122,284 @@ class LexerTest {
             assertEquals(expectedException, e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testByteBufferInput() {
+        String input = "var \u00e9t\u00e9: float = 2.e-1;\n";
+        ArrayList<Token> expected = new ArrayList<>();
+        expected.add(new Token("var", TokenType.VAR_DECL));
+        expected.add(new Token("\u00e9t\u00e9", TokenType.ID));
+        expected.add(new Token(":", TokenType.COLON));
+        expected.add(new Token("float", TokenType.TYPE_ID));
+        expected.add(new Token("=", TokenType.ASSIGNMENT));
+        expected.add(new Token("2.0e-1", TokenType.FLOAT_LITERAL));
+        expected.add(new Token(";", TokenType.SEMICOLON));
+
+        try {
+            Lexer lexer = new Lexer(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+            ArrayList<Token> actual = new ArrayList<>();
+            while (lexer.lookahead().getType() != TokenType.EOF) {
+                actual.add(lexer.consume());
+            }
+            assertEquals(expected, actual);
+            assertEquals(2, lexer.getCurrLine());
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testInternedIds() {
+        String input = "var a = b; a = a + b;";
+        try {
+            Lexer lexer = new Lexer(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+            ArrayList<Token> toks = new ArrayList<>();
+            Token tok;
+            while ((tok = lexer.consume()).getType() != TokenType.EOF) {
+                if (tok.getType() == TokenType.ID) {
+                    toks.add(tok);
+                }
+            }
+            // a, b, a, a, b
+            assertEquals(5, toks.size());
+            assertEquals(0, toks.get(0).getSymbolId());
+            assertEquals(1, toks.get(1).getSymbolId());
+            assertEquals(0, toks.get(2).getSymbolId());
+            assertEquals(0, toks.get(3).getSymbolId());
+            assertEquals(1, toks.get(4).getSymbolId());
+            assertEquals(2, lexer.getSymbolPool().countSymbols());
+            assertEquals("b", lexer.getSymbolPool().getName(1));
+            assertEquals("a", toks.get(3).getValue());
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testTokenStream() {
+        String input = "var x = .5;\n{ x = x * 2.e-1; }";
+        try {
+            Lexer lexer = new Lexer(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+            TokenStream stream = lexer.lexAll();
+            // 13 tokens and EOF
+            assertEquals(14, stream.countToks());
+            assertEquals(TokenType.EOF, stream.getType(13));
+            assertEquals(TokenType.FLOAT_LITERAL, stream.getType(3));
+            assertEquals(new Token("0.5", TokenType.FLOAT_LITERAL), stream.getToken(3));
+            assertEquals(new Token("2.0e-1", TokenType.FLOAT_LITERAL), stream.getToken(10));
+            assertEquals(stream.getSymbolId(1), stream.getSymbolId(6));
+            assertEquals(2, stream.getLine(5));
+
+            // Walk the stream with a cursor
+            Lexer streamLexer = new Lexer(stream);
+            assertEquals(TokenType.VAR_DECL, streamLexer.peekType());
+            int count = 0;
+            while (streamLexer.consume().getType() != TokenType.EOF) {
+                ++count;
+            }
+            assertEquals(13, count);
+            assertEquals(TokenType.EOF, streamLexer.peekType());
+            assertEquals(2, streamLexer.getCurrLine());
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testIncrementalEdit() {
+        String input = "var a = 1;\nvar b = a;\n{ b = b * 2; }\n";
+        try {
+            IncrementalLexer lexer = new IncrementalLexer(input);
+            // Rename b to bc on line 2 and insert a line before the scope
+            lexer.edit(input.indexOf("b"), 1, "bc");
+            TokenStream stream = lexer.edit(lexer.getText().indexOf("{") + 1, 0, "var c = 0;\n");
+            assertEquals("var a = 1;\nvar bc = a;\n{var c = 0;\n b = b * 2; }\n", lexer.getText());
+
+            TokenStream expected = new Lexer(ByteBuffer.wrap(lexer.getText().getBytes(StandardCharsets.UTF_8)))
+                    .lexAll();
+            assertEquals(expected.countToks(), stream.countToks());
+            for (int i = 0; i < expected.countToks(); ++i) {
+                assertEquals(expected.getType(i), stream.getType(i));
+                assertEquals(expected.getToken(i).getValue(), stream.getToken(i).getValue());
+                assertEquals(expected.getStart(i), stream.getStart(i));
+                assertEquals(expected.getLine(i), stream.getLine(i));
+            }
+            assertEquals(4, stream.getLine(stream.countToks() - 2));
+
+            // The text is edited even if it cannot be lexed
+            assertThrows(SyntaxError.class, () -> lexer.edit(0, 0, "$"));
+            assertNull(lexer.getTokStream());
+            assertEquals(expected.countToks(), lexer.edit(0, 1, "").countToks());
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testIncrementalChange() {
+        String input = "var a = 1;\nvar b = a;\n";
+        try {
+            IncrementalLexer lexer = new IncrementalLexer(input);
+            TokenStream stream = lexer.getTokStream();
+            // Only the renamed ID has changed and the stream is updated in place
+            assertSame(stream, lexer.edit(input.indexOf("b"), 1, "bc"));
+            assertEquals(6, lexer.getChangeStart());
+            assertEquals(7, lexer.getChangeOldEnd());
+            assertEquals(7, lexer.getChangeNewEnd());
+
+            // The tokens that have only moved by the number of lines added are unchanged
+            lexer.edit(0, 0, "\n");
+            assertEquals(0, lexer.getChangeStart());
+            assertEquals(0, lexer.getChangeOldEnd());
+            assertEquals(0, lexer.getChangeNewEnd());
+            assertEquals(2, stream.getLine(0));
+            assertEquals(3, stream.getLine(stream.countToks() - 2));
+            assertEquals("bc", stream.getToken(6).getValue());
+            assertEquals(input.indexOf("b") + 1, stream.getStart(6));
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testNumValues() {
+        String input = "52 .5 2.e-1 71e3 123456789012345678901 1e0.5";
+        try {
+            Lexer lexer = new Lexer(new BufferedReader(new StringReader(input)));
+            assertEquals(52, lexer.consume().getIntValue());
+            assertEquals(0.5, lexer.consume().getFloatValue());
+            assertEquals(0.2, lexer.consume().getFloatValue());
+            assertEquals(71000.0, lexer.consume().getFloatValue());
+            assertEquals(Long.MAX_VALUE, lexer.consume().getIntValue());
+            assertEquals(Math.sqrt(10), lexer.consume().getFloatValue(), 1e-12);
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testMarkRewind() {
+        String input = "var x = 1;\nx = x + 2;";
+        try {
+            Lexer lexer = new Lexer(new BufferedReader(new StringReader(input)));
+            assertEquals(TokenType.VAR_DECL, lexer.peek(0));
+            assertEquals(TokenType.ASSIGNMENT, lexer.peek(2));
+            assertEquals(new Token("x", TokenType.ID), lexer.lookahead(1));
+            // Looking past the end of the stream gives the EOF token
+            assertEquals(TokenType.EOF, lexer.peek(100));
+
+            lexer.consume();
+            lexer.mark();
+            Token idTok = lexer.consume();
+            lexer.mark();
+            lexer.consume();
+            lexer.consume();
+            lexer.rewind();
+            assertEquals(TokenType.ASSIGNMENT, lexer.peekType());
+            lexer.rewind();
+            // The same tokens are returned after rewinding
+            assertSame(idTok, lexer.consume());
+
+            lexer.mark();
+            for (int i = 0; i < 9; ++i) {
+                lexer.consume();
+            }
+            lexer.release();
+            assertEquals(TokenType.EOF, lexer.consume().getType());
+            assertEquals(2, lexer.getCurrLine());
+            assertThrows(IllegalStateException.class, lexer::rewind);
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    private String createLargeInput(int numLines) {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < numLines; ++i) {
+            // Lines of different lengths and blank lines so that the chunks split in various places
+            input.append("var x").append(i).append(": char = x").append(i / 2).append(" * 2.5e-1 + ").append(i)
+                    .append(";\n");
+            if (i % 7 == 0) {
+                input.append("\n{ let y = true; }\t\n");
+            }
+        }
+        return input.toString();
+    }
+
+    @Test
+    public void testParallelLexAll() {
+        TypeTable typeTable = TypeTable.getInstance().extend("char", 1);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            String input = createLargeInput(100000);
+            assertTrue(input.length() > 3 << 20);
+            ByteBuffer bytes = ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8));
+            TokenStream expected = new Lexer(bytes.duplicate(), typeTable).lexAll();
+            TokenStream actual = new ParallelLexer(pool).lexAll(bytes.duplicate(), typeTable);
+            assertEquals(expected.countToks(), actual.countToks());
+            for (int i = 0; i < expected.countToks(); ++i) {
+                assertEquals(expected.getType(i), actual.getType(i));
+                assertEquals(expected.getStart(i), actual.getStart(i));
+                assertEquals(expected.getLength(i), actual.getLength(i));
+                assertEquals(expected.getLine(i), actual.getLine(i));
+                assertEquals(expected.getSymbolId(i), actual.getSymbolId(i));
+            }
+            // The extended type is recognized in every chunk
+            assertEquals(TokenType.TYPE_ID, actual.getType(3));
+            assertEquals(typeTable, actual.getTypeTable());
+            // The automaton of the extended table is built once and kept on the table
+            assertSame(TokenDfa.getInstance(typeTable), TokenDfa.getInstance(typeTable));
+            assertNotSame(TokenDfa.getInstance(), TokenDfa.getInstance(typeTable));
+
+            // The error is the first one in the source and is on the same line as when lexing sequentially
+            String invalidInput = input.substring(0, input.length() / 2) + "$" + input.substring(input.length() / 2) +
+                    "$";
+            ByteBuffer invalidBytes = ByteBuffer.wrap(invalidInput.getBytes(StandardCharsets.UTF_8));
+            SyntaxError expectedError = assertThrows(SyntaxError.class,
+                    () -> new Lexer(invalidBytes.duplicate(), typeTable).lexAll());
+            SyntaxError actualError = assertThrows(SyntaxError.class,
+                    () -> new ParallelLexer(pool).lexAll(invalidBytes.duplicate(), typeTable));
+            assertEquals(expectedError.getMessage(), actualError.getMessage());
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testTableLookups() {
+        KeywordTable kwTable = KeywordTable.getInstance();
+        OperatorTable opTable = OperatorTable.getInstance();
+        TypeTable typeTable = TypeTable.getInstance().extend("\u00e9t\u00e9", 4);
+        ArrayList<String> strs = new ArrayList<>(kwTable.getKwMap().keySet());
+        strs.addAll(opTable.getOpMap().keySet());
+        strs.addAll(typeTable.getTypeIds());
+        // Strings that are not in any table: prefixes, extensions, other cases, non-ASCII and empty
+        strs.addAll(List.of("", "va", "vars", "Var", "tru", "falsey", "in", "ints", "floa", "+-", "==", "\u00e9t",
+                "\u00e9t\u00e9s", "x", "\u00e9"));
+        for (String str : strs) {
+            // Surround the string so that the lookups only see the given range
+            char[] chars = ("(" + str + ")").toCharArray();
+            byte[] bytes = ("(" + str + ")").getBytes(StandardCharsets.UTF_8);
+            int byteLength = bytes.length - 2;
+            assertEquals(kwTable.getId(str), kwTable.getId(chars, 1, str.length()));
+            assertEquals(kwTable.getId(str), kwTable.getId(bytes, 1, byteLength));
+            assertEquals(opTable.getId(str), opTable.getId(chars, 1, str.length()));
+            assertEquals(opTable.getId(str), opTable.getId(bytes, 1, byteLength));
+            assertEquals(typeTable.getType(str), typeTable.getType(chars, 1, str.length()));
+            assertEquals(typeTable.getType(str), typeTable.getType(bytes, 1, byteLength));
+        }
+        assertEquals(TokenType.VAR_DECL, kwTable.getId("var".toCharArray(), 0, 3));
+        assertEquals(TokenType.ADD, opTable.getId("+".getBytes(StandardCharsets.UTF_8), 0, 1));
+        assertNotNull(typeTable.getType("\u00e9t\u00e9".getBytes(StandardCharsets.UTF_8), 0, 5));
+    }
+}
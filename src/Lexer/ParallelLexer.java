@@ -0,0 +1,171 @@
+package Lexer;
+
+import Exceptions.SyntaxError;
+import Symbols.SymbolPool;
+import Tokens.TokenType;
+import Types.TypeTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class ParallelLexer {
+    // Inputs smaller than two chunks are lexed on the calling thread
+    private final static int MIN_CHUNK_SIZE = 1 << 20;
+    private final ForkJoinPool pool;
+
+    public ParallelLexer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelLexer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Lexes UTF-8 encoded source in chunks on the pool and merges the chunks into a single token stream. The input is
+     * only split at ASCII whitespace, which ends every token, so no token straddles two chunks and the result is the
+     * same as lexing the whole source sequentially.
+     *
+     * @param bytes the buffer that holds the source.
+     * @return a stream of tokens ending with an EOF token.
+     * @throws SyntaxError if there is a syntax error, the error is the first one in the source.
+     * @throws IOException if the read operation causes an IO error.
+     */
+    public TokenStream lexAll(ByteBuffer bytes) throws SyntaxError, IOException {
+        return lexAll(bytes, TypeTable.getInstance());
+    }
+
+    /**
+     * Lexes UTF-8 encoded source in chunks on the pool like lexAll(ByteBuffer) and recognizes the types of a type
+     * table, which may have been extended.
+     *
+     * @param bytes     the buffer that holds the source.
+     * @param typeTable the type table.
+     * @return a stream of tokens ending with an EOF token.
+     * @throws SyntaxError if there is a syntax error, the error is the first one in the source.
+     * @throws IOException if the read operation causes an IO error.
+     */
+    public TokenStream lexAll(ByteBuffer bytes, TypeTable typeTable) throws SyntaxError, IOException {
+        int[] splits = split(bytes);
+        int numChunks = splits.length - 1;
+        if (numChunks == 1) {
+            return new Lexer(bytes, typeTable).lexAll();
+        }
+
+        // Every chunk starts on line 1 with its own symbol pool, lines and symbol ids are fixed up when merging
+        ArrayList<Future<TokenStream>> chunkTasks = new ArrayList<>(numChunks);
+        for (int i = 0; i < numChunks; ++i) {
+            ByteBuffer chunk = bytes.duplicate().limit(splits[i + 1]);
+            int chunkStart = splits[i];
+            chunkTasks.add(pool.submit(() -> new Lexer(chunk, chunkStart, 1, typeTable, new SymbolPool()).lexAll()));
+        }
+
+        TokenStream[] chunkStreams = new TokenStream[numChunks];
+        int line = 1;
+        int numToks = 1;
+        for (int i = 0; i < numChunks; ++i) {
+            try {
+                chunkStreams[i] = chunkTasks.get(i).get();
+            } catch (ExecutionException e) {
+                cancel(chunkTasks, i + 1);
+                // The pool may wrap checked exceptions in runtime exceptions
+                Throwable cause = e.getCause();
+                while (cause.getCause() != null && !(cause instanceof SyntaxError) && !(cause instanceof IOException)) {
+                    cause = cause.getCause();
+                }
+                if (cause instanceof SyntaxError) {
+                    // Lex the chunk again from its actual line so that the error is reported on the right line
+                    ByteBuffer chunk = bytes.duplicate().limit(splits[i + 1]);
+                    new Lexer(chunk, splits[i], line, typeTable, new SymbolPool()).lexAll();
+                } else if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+                throw new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                cancel(chunkTasks, i);
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            // The EOF token is on the chunk's last line
+            TokenStream chunkStream = chunkStreams[i];
+            line += chunkStream.getLine(chunkStream.countToks() - 1) - 1;
+            numToks += chunkStream.countToks() - 1;
+        }
+
+        // Intern the names of every chunk in order so that the symbol ids are assigned in the same order as they
+        // would be when lexing sequentially
+        SymbolPool symbolPool = new SymbolPool();
+        CharBuffer src = new CharBuffer(bytes);
+        TokenStream.Builder builder = new TokenStream.Builder(src, symbolPool, typeTable, numToks);
+        int lineShift = 0;
+        for (int i = 0; i < numChunks; ++i) {
+            TokenStream chunkStream = chunkStreams[i];
+            SymbolPool chunkPool = chunkStream.getSymbolPool();
+            int[] symbolMap = new int[chunkPool.countSymbols()];
+            for (int j = 0; j < symbolMap.length; ++j) {
+                symbolMap[j] = symbolPool.intern(chunkPool.getName(j));
+            }
+            // Only the EOF token of the last chunk is kept
+            int numChunkToks = chunkStream.countToks() - (i + 1 < numChunks ? 1 : 0);
+            builder.addRange(chunkStream, 0, numChunkToks, 0, lineShift, symbolMap);
+            lineShift += chunkStream.getLine(chunkStream.countToks() - 1) - 1;
+        }
+        return builder.build();
+    }
+
+    /**
+     * Splits the source into chunks of roughly equal size, one for each thread in the pool. Every chunk except the
+     * first starts at an ASCII whitespace character.
+     *
+     * @param bytes the buffer that holds the source.
+     * @return the positions where the chunks start followed by the end of the source.
+     */
+    private int[] split(ByteBuffer bytes) {
+        int start = bytes.position();
+        int end = bytes.limit();
+        int numChunks = Math.max(1, Math.min(pool.getParallelism(), (end - start) / MIN_CHUNK_SIZE));
+        int[] splits = new int[numChunks + 1];
+        int count = 0;
+        splits[count++] = start;
+        for (int i = 1; i < numChunks; ++i) {
+            int pos = Math.max(start + (int) ((long) (end - start) * i / numChunks), splits[count - 1] + 1);
+            while (pos < end && !isSplitChar(bytes.get(pos))) {
+                ++pos;
+            }
+            if (pos >= end) {
+                break;
+            }
+            splits[count++] = pos;
+        }
+        splits[count++] = end;
+        return count == splits.length ? splits : Arrays.copyOf(splits, count);
+    }
+
+    /**
+     * Determines if the byte is an ASCII whitespace character, which can never be part of a token or of a multi-byte
+     * character.
+     *
+     * @param b the byte to be checked.
+     * @return true if the byte is a whitespace character and false otherwise.
+     */
+    private static boolean isSplitChar(byte b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r';
+    }
+
+    /**
+     * Cancels the chunk tasks from the given index onwards.
+     *
+     * @param chunkTasks the tasks lexing the chunks.
+     * @param from       the index of the first task to be cancelled.
+     */
+    private static void cancel(ArrayList<Future<TokenStream>> chunkTasks, int from) {
+        for (int i = from; i < chunkTasks.size(); ++i) {
+            chunkTasks.get(i).cancel(true);
+        }
+    }
+}
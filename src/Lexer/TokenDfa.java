@@ -0,0 +1,236 @@
+package Lexer;
+
+import Keywords.KeywordTable;
+import Operators.OperatorTable;
+import Tokens.TokenType;
+import Types.TypeTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+public class TokenDfa {
+    // Character classes for the characters that do not appear in the vocabulary
+    private final static int OTHER_CLASS = 0;
+    private final static int LETTER_CLASS = 1;
+    private final static int DIGIT_CLASS = 2;
+    // The dead state is never left once it is entered
+    public final static int DEAD_STATE = 0;
+    public final static int START_STATE = 1;
+    // The state for IDs that can no longer match any keyword or type
+    public final static int ID_STATE = 2;
+    // The automaton of the built-in tables, shared by every lexer that does not extend the types
+    private final static TokenDfa INSTANCE = new TokenDfa(TypeTable.getInstance());
+    // Maps each ASCII character to its class, each character in the vocabulary has its own class
+    private final byte[] charClasses = new byte[128];
+    // Whether a class can be part of an ID and whether it can start an ID
+    private final boolean[] idClasses;
+    private final boolean[] idStartClasses;
+    private final int numClasses;
+    // Transition table indexed by state * numClasses + class
+    private final int[] transitions;
+    // Token type and string accepted by each state, both are null if the state is not accepting
+    private final TokenType[] acceptTypes;
+    private final String[] acceptStrs;
+
+    private TokenDfa(TypeTable typeTable) {
+        KeywordTable kwTable = KeywordTable.getInstance();
+        OperatorTable opTable = OperatorTable.getInstance();
+
+        // Initialize character classes
+        for (int c = 0; c < charClasses.length; ++c) {
+            if (Character.isLetter(c) || c == '_') {
+                charClasses[c] = LETTER_CLASS;
+            } else if (Character.isDigit(c)) {
+                charClasses[c] = DIGIT_CLASS;
+            } else {
+                charClasses[c] = OTHER_CLASS;
+            }
+        }
+        ArrayList<Integer> baseClasses = new ArrayList<>(Arrays.asList(OTHER_CLASS, LETTER_CLASS, DIGIT_CLASS));
+        for (String word : typeTable.getTypeIds()) {
+            addClasses(word, baseClasses);
+        }
+        for (String word : kwTable.getKwMap().keySet()) {
+            addClasses(word, baseClasses);
+        }
+        for (String word : opTable.getOpMap().keySet()) {
+            addClasses(word, baseClasses);
+        }
+        numClasses = baseClasses.size();
+        idClasses = new boolean[numClasses];
+        idStartClasses = new boolean[numClasses];
+        for (int i = 0; i < numClasses; ++i) {
+            idClasses[i] = baseClasses.get(i) != OTHER_CLASS;
+            idStartClasses[i] = baseClasses.get(i) == LETTER_CLASS;
+        }
+
+        // Build a trie of the vocabulary on top of the dead, start and ID states
+        ArrayList<int[]> trie = new ArrayList<>();
+        ArrayList<TokenType> types = new ArrayList<>();
+        ArrayList<String> strs = new ArrayList<>();
+        for (int i = 0; i <= ID_STATE; ++i) {
+            trie.add(new int[numClasses]);
+            types.add(i == ID_STATE ? TokenType.ID : null);
+            strs.add(null);
+        }
+        // Types are added before keywords so that keywords take priority
+        for (String word : typeTable.getTypeIds()) {
+            addWord(word, TokenType.TYPE_ID, trie, types, strs);
+        }
+        for (Map.Entry<String, TokenType> entry : kwTable.getKwMap().entrySet()) {
+            addWord(entry.getKey(), entry.getValue(), trie, types, strs);
+        }
+        for (Map.Entry<String, TokenType> entry : opTable.getOpMap().entrySet()) {
+            addWord(entry.getKey(), entry.getValue(), trie, types, strs);
+        }
+
+        // Fill in the transitions that are not in the trie
+        int numStates = trie.size();
+        transitions = new int[numStates * numClasses];
+        acceptTypes = types.toArray(new TokenType[0]);
+        acceptStrs = strs.toArray(new String[0]);
+        for (int state = 0; state < numStates; ++state) {
+            int[] children = trie.get(state);
+            // A state that accepts an ID is either the ID state or a prefix of a keyword or a type
+            boolean inId = state == ID_STATE || (state > ID_STATE && acceptTypes[state] != null &&
+                    (acceptStrs[state] == null || isIdWord(acceptStrs[state])));
+            for (int cls = 0; cls < numClasses; ++cls) {
+                int next = children[cls];
+                if (next == DEAD_STATE && state != DEAD_STATE) {
+                    if (state == START_STATE) {
+                        next = idStartClasses[cls] ? ID_STATE : DEAD_STATE;
+                    } else if (inId && idClasses[cls]) {
+                        next = ID_STATE;
+                    }
+                }
+                transitions[state * numClasses + cls] = next;
+            }
+        }
+    }
+
+    /**
+     * Gets the automaton built from the keyword and operator tables and the built-in types.
+     *
+     * @return a TokenDfa object.
+     */
+    public static TokenDfa getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the automaton built from the keyword and operator tables and the types of a type table. The automaton of
+     * the built-in types does not recognize the types of an extended table, so an automaton is built the first time an
+     * extended table is used and kept on the table for the lexers that use it later.
+     *
+     * @param typeTable the type table.
+     * @return a TokenDfa object.
+     */
+    public static TokenDfa getInstance(TypeTable typeTable) {
+        return typeTable == TypeTable.getInstance() ? INSTANCE : typeTable.getDerived(TokenDfa.class, TokenDfa::new);
+    }
+
+    /**
+     * Assigns a new class to each character in the word that does not have one yet.
+     *
+     * @param word        a string in the vocabulary.
+     * @param baseClasses the list that stores the class each class was split from, indexed by class.
+     */
+    private void addClasses(String word, ArrayList<Integer> baseClasses) {
+        for (int i = 0; i < word.length(); ++i) {
+            char c = word.charAt(i);
+            int cls = charClasses[c];
+            if (cls <= DIGIT_CLASS) {
+                charClasses[c] = (byte) baseClasses.size();
+                baseClasses.add(cls);
+            }
+        }
+    }
+
+    /**
+     * Adds a word to the trie and marks its last state as accepting.
+     *
+     * @param word    a string in the vocabulary.
+     * @param tokType the token type to be accepted.
+     * @param trie    the list of children for each state.
+     * @param types   the list of accepted token types for each state.
+     * @param strs    the list of accepted strings for each state.
+     */
+    private void addWord(String word, TokenType tokType, ArrayList<int[]> trie, ArrayList<TokenType> types,
+                         ArrayList<String> strs) {
+        boolean idWord = isIdWord(word);
+        int state = START_STATE;
+        for (int i = 0; i < word.length(); ++i) {
+            int cls = charClasses[word.charAt(i)];
+            int next = trie.get(state)[cls];
+            if (next == DEAD_STATE) {
+                next = trie.size();
+                trie.add(new int[numClasses]);
+                // A prefix of a keyword or a type is still an ID
+                types.add(idWord ? TokenType.ID : null);
+                strs.add(null);
+                trie.get(state)[cls] = next;
+            }
+            state = next;
+        }
+        types.set(state, tokType);
+        strs.set(state, word);
+    }
+
+    /**
+     * Determines if a word in the vocabulary is made of ID characters, like keywords and types.
+     *
+     * @param word the word to be checked.
+     * @return true if the word is made of ID characters and false otherwise.
+     */
+    private boolean isIdWord(String word) {
+        return Character.isLetter(word.charAt(0)) || word.charAt(0) == '_';
+    }
+
+    /**
+     * Gets the class of a character. Non-ASCII characters are classified as letters, digits or other characters.
+     *
+     * @param c the character to be classified.
+     * @return the character's class.
+     */
+    private int getCharClass(int c) {
+        if (c >= 0 && c < charClasses.length) {
+            return charClasses[c];
+        }
+        if (Character.isAlphabetic(c)) {
+            return LETTER_CLASS;
+        }
+        return Character.isDigit(c) ? DIGIT_CLASS : OTHER_CLASS;
+    }
+
+    /**
+     * Moves from a state to the next state on a character.
+     *
+     * @param state the current state.
+     * @param c     the character to be consumed.
+     * @return the next state.
+     */
+    public int next(int state, int c) {
+        return transitions[state * numClasses + getCharClass(c)];
+    }
+
+    /**
+     * Gets the token type accepted by a state.
+     *
+     * @param state the state to be checked.
+     * @return the accepted token type if the state is accepting and null otherwise.
+     */
+    public TokenType getAcceptType(int state) {
+        return acceptTypes[state];
+    }
+
+    /**
+     * Gets the vocabulary string accepted by a state.
+     *
+     * @param state the state to be checked.
+     * @return the accepted keyword, type or operator if there is one and null otherwise.
+     */
+    public String getAcceptStr(int state) {
+        return acceptStrs[state];
+    }
+}
@@ -0,0 +1,388 @@
+package Lexer;
+
+import Symbols.SymbolPool;
+import Tokens.Token;
+import Tokens.TokenSrc;
+import Tokens.TokenType;
+import Types.TypeTable;
+
+import java.util.Arrays;
+
+public class TokenStream {
+    private final static TokenType[] TOK_TYPES = TokenType.values();
+    private TokenSrc src;
+    private final SymbolPool symbolPool;
+    // The types that the stream was lexed with
+    private final TypeTable typeTable;
+    // Parallel arrays indexed by token, the last token is always EOF
+    // An edited stream keeps a gap in the arrays at the last edit, the tokens after the gap are stored without the
+    // positions and lines that the edits have added so that an edit does not have to move every token after it
+    private int[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int[] symbolIds;
+    // The values of numeric literals, a long for integers and the bits of a double for floating-point numbers
+    private long[] numBits;
+    // The positions of the tokens' text in the source, null if they are the same as the positions of the tokens
+    private int[] offsets;
+    private int gapStart;
+    private int gapLen = 0;
+    // The number of positions and lines to be added to the tokens after the gap
+    private int startShift = 0;
+    private int lineShift = 0;
+
+    private TokenStream(Builder builder) {
+        this.src = builder.src;
+        this.symbolPool = builder.symbolPool;
+        this.typeTable = builder.typeTable;
+        this.types = Arrays.copyOf(builder.types, builder.count);
+        this.starts = Arrays.copyOf(builder.starts, builder.count);
+        this.lengths = Arrays.copyOf(builder.lengths, builder.count);
+        this.lines = Arrays.copyOf(builder.lines, builder.count);
+        this.symbolIds = Arrays.copyOf(builder.symbolIds, builder.count);
+        this.numBits = Arrays.copyOf(builder.numBits, builder.count);
+        this.gapStart = builder.count;
+    }
+
+    public TokenSrc getSrc() {
+        return src;
+    }
+
+    public SymbolPool getSymbolPool() {
+        return symbolPool;
+    }
+
+    public TypeTable getTypeTable() {
+        return typeTable;
+    }
+
+    /**
+     * Counts the number of tokens in the stream, including the EOF token at the end.
+     *
+     * @return the number of tokens.
+     */
+    public int countToks() {
+        return types.length - gapLen;
+    }
+
+    public TokenType getType(int i) {
+        return TOK_TYPES[types[index(i)]];
+    }
+
+    public int getStart(int i) {
+        return i < gapStart ? starts[i] : starts[i + gapLen] + startShift;
+    }
+
+    public int getLength(int i) {
+        return lengths[index(i)];
+    }
+
+    public int getLine(int i) {
+        return i < gapStart ? lines[i] : lines[i + gapLen] + lineShift;
+    }
+
+    public int getSymbolId(int i) {
+        return symbolIds[index(i)];
+    }
+
+    public long getIntValue(int i) {
+        return numBits[index(i)];
+    }
+
+    public double getFloatValue(int i) {
+        return Double.longBitsToDouble(numBits[index(i)]);
+    }
+
+    /**
+     * Gets the position of a token's text in the source. It is the same as the token's position unless the stream
+     * has been edited, in which case the text is no longer held in order in the source.
+     *
+     * @param i the index of the token.
+     * @return the position of the token's text in the source.
+     */
+    public int getOffset(int i) {
+        return offsets == null ? getStart(i) : offsets[index(i)];
+    }
+
+    /**
+     * Maps the index of a token to its index in the arrays.
+     *
+     * @param i the index of the token.
+     * @return the index of the token in the arrays.
+     */
+    private int index(int i) {
+        return i < gapStart ? i : i + gapLen;
+    }
+
+    /**
+     * Checks if a token has the same type and value as a token in another stream whose IDs are interned in the same
+     * pool. The positions and lines of the tokens are not compared.
+     *
+     * @param i     the index of the token in this stream.
+     * @param other the other stream.
+     * @param j     the index of the token in the other stream.
+     * @return true if the tokens are the same and false otherwise.
+     */
+    public boolean isSameTok(int i, TokenStream other, int j) {
+        int k = index(i);
+        int l = other.index(j);
+        if (types[k] != other.types[l] || lengths[k] != other.lengths[l] || symbolIds[k] != other.symbolIds[l] ||
+                numBits[k] != other.numBits[l]) {
+            return false;
+        }
+        // Types and boolean literals have no symbol ids but their values differ
+        TokenType type = TOK_TYPES[types[k]];
+        if (type == TokenType.TYPE_ID || type == TokenType.BOOL_LITERAL) {
+            return getToken(i).getValue().equals(other.getToken(j).getValue());
+        }
+        return true;
+    }
+
+    /**
+     * Creates a token object for a token in the stream. The token's text is sliced from the source when it is needed.
+     *
+     * @param i the index of the token.
+     * @return a new token.
+     */
+    public Token getToken(int i) {
+        int k = index(i);
+        TokenType type = TOK_TYPES[types[k]];
+        if (type == TokenType.EOF) {
+            return new Token(null, type, getLine(i));
+        }
+        if (type == TokenType.INT_LITERAL || type == TokenType.FLOAT_LITERAL) {
+            return Token.ofNumber(src, getOffset(i), lengths[k], type, getLine(i), numBits[k]);
+        }
+        return new Token(src, getOffset(i), lengths[k], type, getLine(i), symbolIds[k]);
+    }
+
+    /**
+     * Replaces a range of tokens with the tokens of another stream that has been lexed from a copy of the edited
+     * text. The gap is moved to the range and the tokens after it are moved lazily, so the cost depends on the number
+     * of tokens replaced and on the distance from the last edit but not on the number of tokens in the stream.
+     *
+     * @param from      the index of the first token to be replaced.
+     * @param to        the index after the last token to be replaced.
+     * @param window    the new tokens, its source must also hold the text of the tokens that are kept.
+     * @param posShift  the number of positions to move the new tokens by to get their positions in the text.
+     * @param textShift the number of positions added by the edit.
+     * @param lineShift the number of lines added by the edit.
+     */
+    void replace(int from, int to, TokenStream window, int posShift, int textShift, int lineShift) {
+        if (offsets == null) {
+            offsets = Arrays.copyOf(starts, starts.length);
+        }
+        moveGap(from);
+        // The replaced tokens are right after the gap and are removed by widening it
+        gapLen += to - from;
+        int n = window.countToks();
+        if (n > gapLen) {
+            growGap(n);
+        }
+        for (int i = 0; i < n; ++i) {
+            int k = gapStart + i;
+            int l = window.index(i);
+            types[k] = window.types[l];
+            starts[k] = window.getStart(i) + posShift;
+            offsets[k] = window.getOffset(i);
+            lengths[k] = window.lengths[l];
+            lines[k] = window.getLine(i);
+            symbolIds[k] = window.symbolIds[l];
+            numBits[k] = window.numBits[l];
+        }
+        gapStart += n;
+        gapLen -= n;
+        startShift += textShift;
+        this.lineShift += lineShift;
+        src = window.src;
+    }
+
+    /**
+     * Moves the gap in the arrays so that it starts before a token, adding the pending positions and lines to the
+     * tokens that end up before the gap and removing them from those that end up after it.
+     *
+     * @param to the index of the token.
+     */
+    private void moveGap(int to) {
+        if (to < gapStart) {
+            int n = gapStart - to;
+            moveArrays(to, to + gapLen, n);
+            for (int k = to + gapLen; k < gapStart + gapLen; ++k) {
+                starts[k] -= startShift;
+                lines[k] -= lineShift;
+            }
+        } else if (to > gapStart) {
+            int n = to - gapStart;
+            moveArrays(gapStart + gapLen, gapStart, n);
+            for (int k = gapStart; k < to; ++k) {
+                starts[k] += startShift;
+                lines[k] += lineShift;
+            }
+        }
+        gapStart = to;
+    }
+
+    private void moveArrays(int from, int to, int n) {
+        System.arraycopy(types, from, types, to, n);
+        System.arraycopy(starts, from, starts, to, n);
+        System.arraycopy(lengths, from, lengths, to, n);
+        System.arraycopy(lines, from, lines, to, n);
+        System.arraycopy(symbolIds, from, symbolIds, to, n);
+        System.arraycopy(numBits, from, numBits, to, n);
+        System.arraycopy(offsets, from, offsets, to, n);
+    }
+
+    /**
+     * Grows the arrays so that the gap can hold at least the given number of tokens.
+     *
+     * @param minGapLen the number of tokens.
+     */
+    private void growGap(int minGapLen) {
+        int count = countToks();
+        int capacity = Math.max(types.length * 2, count + minGapLen);
+        int newGapLen = capacity - count;
+        types = growArray(types, count, newGapLen);
+        starts = growArray(starts, count, newGapLen);
+        lengths = growArray(lengths, count, newGapLen);
+        lines = growArray(lines, count, newGapLen);
+        symbolIds = growArray(symbolIds, count, newGapLen);
+        offsets = growArray(offsets, count, newGapLen);
+        long[] newNumBits = new long[count + newGapLen];
+        System.arraycopy(numBits, 0, newNumBits, 0, gapStart);
+        System.arraycopy(numBits, gapStart + gapLen, newNumBits, gapStart + newGapLen, count - gapStart);
+        numBits = newNumBits;
+        gapLen = newGapLen;
+    }
+
+    private int[] growArray(int[] array, int count, int newGapLen) {
+        int[] newArray = new int[count + newGapLen];
+        System.arraycopy(array, 0, newArray, 0, gapStart);
+        System.arraycopy(array, gapStart + gapLen, newArray, gapStart + newGapLen, count - gapStart);
+        return newArray;
+    }
+
+    /**
+     * Collects tokens into growable arrays while the source is being lexed.
+     */
+    static class Builder {
+        private final static int INIT_CAPACITY = 1 << 10;
+        private final TokenSrc src;
+        private final SymbolPool symbolPool;
+        private final TypeTable typeTable;
+        private int[] types;
+        private int[] starts;
+        private int[] lengths;
+        private int[] lines;
+        private int[] symbolIds;
+        private long[] numBits;
+        private int count = 0;
+
+        Builder(TokenSrc src, SymbolPool symbolPool, TypeTable typeTable) {
+            this(src, symbolPool, typeTable, INIT_CAPACITY);
+        }
+
+        Builder(TokenSrc src, SymbolPool symbolPool, TypeTable typeTable, int capacity) {
+            this.src = src;
+            this.symbolPool = symbolPool;
+            this.typeTable = typeTable;
+            capacity = Math.max(capacity, 1);
+            this.types = new int[capacity];
+            this.starts = new int[capacity];
+            this.lengths = new int[capacity];
+            this.lines = new int[capacity];
+            this.symbolIds = new int[capacity];
+            this.numBits = new long[capacity];
+        }
+
+        /**
+         * Adds a token to the end of the stream.
+         *
+         * @param type     the token's type.
+         * @param start    the position of the token in the source.
+         * @param length   the length of the token in the source.
+         * @param line     the line the token is on.
+         * @param symbolId the id of the interned name if the token is an ID, -1 otherwise.
+         * @param numBits  the value of the token if it is a numeric literal.
+         */
+        void add(TokenType type, int start, int length, int line, int symbolId, long numBits) {
+            ensureCapacity(count + 1);
+            types[count] = type.ordinal();
+            starts[count] = start;
+            lengths[count] = length;
+            lines[count] = line;
+            symbolIds[count] = symbolId;
+            this.numBits[count] = numBits;
+            ++count;
+        }
+
+        /**
+         * Adds a range of tokens from another stream to the end of the stream, moving them by the given number of
+         * positions and lines.
+         *
+         * @param stream     the stream to copy the tokens from, it must not have been edited.
+         * @param from       the index of the first token to be copied.
+         * @param to         the index after the last token to be copied.
+         * @param startShift the number of positions to move the tokens by.
+         * @param lineShift  the number of lines to move the tokens by.
+         * @param symbolMap  the symbol ids in the builder's pool indexed by the symbol ids in the stream's pool, null
+         *                   if both streams share the same pool.
+         */
+        void addRange(TokenStream stream, int from, int to, int startShift, int lineShift, int[] symbolMap) {
+            int n = to - from;
+            ensureCapacity(count + n);
+            System.arraycopy(stream.types, from, types, count, n);
+            System.arraycopy(stream.lengths, from, lengths, count, n);
+            System.arraycopy(stream.numBits, from, numBits, count, n);
+            if (symbolMap == null) {
+                System.arraycopy(stream.symbolIds, from, symbolIds, count, n);
+            }
+            for (int i = 0; i < n; ++i) {
+                starts[count + i] = stream.starts[from + i] + startShift;
+                lines[count + i] = stream.lines[from + i] + lineShift;
+                if (symbolMap != null) {
+                    int symbolId = stream.symbolIds[from + i];
+                    symbolIds[count + i] = symbolId < 0 ? symbolId : symbolMap[symbolId];
+                }
+            }
+            count += n;
+        }
+
+        /**
+         * Gets the position of the last token that has been added.
+         *
+         * @return the position of the last token in the source.
+         */
+        int getLastStart() {
+            return starts[count - 1];
+        }
+
+        /**
+         * Removes the last token that has been added.
+         */
+        void removeLast() {
+            --count;
+        }
+
+        /**
+         * Grows the arrays so that they can hold at least the given number of tokens.
+         *
+         * @param capacity the number of tokens.
+         */
+        private void ensureCapacity(int capacity) {
+            if (capacity > types.length) {
+                capacity = Math.max(capacity, types.length * 2);
+                types = Arrays.copyOf(types, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                lines = Arrays.copyOf(lines, capacity);
+                symbolIds = Arrays.copyOf(symbolIds, capacity);
+                numBits = Arrays.copyOf(numBits, capacity);
+            }
+        }
+
+        TokenStream build() {
+            return new TokenStream(this);
+        }
+    }
+}
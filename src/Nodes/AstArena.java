@@ -0,0 +1,638 @@
+package Nodes;
+
+import Tokens.Token;
+import Tokens.TokenSrc;
+import Tokens.TokenType;
+import Types.TypeInfo;
+import Types.TypeTable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class AstArena {
+    private final static int INIT_CAPACITY = 64;
+    private final static int VAR = 1;
+    private final static int MUTABLE = 1 << 1;
+    private final static NodeType[] NODE_TYPES = NodeType.values();
+    private final static TokenType[] TOK_TYPES = TokenType.values();
+    private final TypeTable typeTable;
+    // Nodes stored in parallel columns indexed by node, children are linked through their first child and next
+    // sibling, -1 marks a missing node, token or data type
+    private NodeType[] kinds = new NodeType[INIT_CAPACITY];
+    private int[] toks = new int[INIT_CAPACITY];
+    private int[] dataTypes = new int[INIT_CAPACITY];
+    private int[] firstChildren = new int[INIT_CAPACITY];
+    private int[] nextSiblings = new int[INIT_CAPACITY];
+    // The last child of every node so that children are appended without walking the siblings
+    private int[] lastChildren = new int[INIT_CAPACITY];
+    private int[] flags = new int[INIT_CAPACITY];
+    // The storage addresses of the variable nodes, -1 for the other nodes
+    private int[] scopeDepths = new int[INIT_CAPACITY];
+    private int[] slots = new int[INIT_CAPACITY];
+    private int numNodes = 0;
+    // Tokens referred to by the nodes stored in parallel columns indexed by token, a token refers to its text by
+    // position in its source, or holds it as a string if it was lexed from a reader that does not keep the source, so
+    // that no token object is kept and the arena does not allocate once its columns are large enough
+    private TokenType[] tokTypes = new TokenType[INIT_CAPACITY];
+    private int[] tokLines = new int[INIT_CAPACITY];
+    private int[] tokSymbolIds = new int[INIT_CAPACITY];
+    private long[] tokNumBits = new long[INIT_CAPACITY];
+    private TokenSrc[] tokSrcs = new TokenSrc[INIT_CAPACITY];
+    private int[] tokOffsets = new int[INIT_CAPACITY];
+    private int[] tokLengths = new int[INIT_CAPACITY];
+    private String[] tokStrs = new String[INIT_CAPACITY];
+    private int numToks = 0;
+    // The roots of the trees added with addTree() in order
+    private int[] roots = new int[16];
+    private int numRoots = 0;
+    // Stacks reused when adding trees
+    private Node[] nodeStack = new Node[16];
+    private int[] parentStack = new int[16];
+
+    public AstArena() {
+        this(TypeTable.getInstance());
+    }
+
+    /**
+     * Creates an arena whose data types are resolved against a type table, which must be the table the trees were
+     * parsed with.
+     *
+     * @param typeTable the type table.
+     */
+    public AstArena(TypeTable typeTable) {
+        this.typeTable = typeTable;
+    }
+
+    /**
+     * Removes all nodes and tokens while keeping the arrays so that the arena can be filled again without allocating.
+     * The sources and strings of the tokens are released.
+     */
+    public void reset() {
+        Arrays.fill(tokSrcs, 0, numToks, null);
+        Arrays.fill(tokStrs, 0, numToks, null);
+        numNodes = 0;
+        numToks = 0;
+        numRoots = 0;
+    }
+
+    /**
+     * Adds a node without children.
+     *
+     * @param kind     the type of the node.
+     * @param tok      the node's token, null if there is none.
+     * @param dataType the node's data type, null if there is none.
+     * @return the index of the node.
+     */
+    public int addNode(NodeType kind, Token tok, TypeInfo dataType) {
+        return addNode(kind, tok, dataType, 0, -1, -1);
+    }
+
+    /**
+     * Adds a node without children that refers to a variable or a constant.
+     *
+     * @param kind     the type of the node.
+     * @param tok      the token that holds the variable's name.
+     * @param dataType the variable's data type, null if there is none.
+     * @param mutable    true if the node is a variable and false if it is a constant.
+     * @param scopeDepth the depth of the scope that declares the variable.
+     * @param slot       the slot of the variable in its scope.
+     * @return the index of the node.
+     */
+    public int addVarNode(NodeType kind, Token tok, TypeInfo dataType, boolean mutable, int scopeDepth, int slot) {
+        return addNode(kind, tok, dataType, mutable ? VAR | MUTABLE : VAR, scopeDepth, slot);
+    }
+
+    private int addNode(NodeType kind, Token tok, TypeInfo dataType, int nodeFlags, int scopeDepth, int slot) {
+        ensureNodeCapacity(numNodes + 1);
+        int node = numNodes++;
+        kinds[node] = kind;
+        toks[node] = addTok(tok);
+        dataTypes[node] = dataType == null ? -1 : dataType.getOrdinal();
+        firstChildren[node] = nextSiblings[node] = lastChildren[node] = -1;
+        flags[node] = nodeFlags;
+        scopeDepths[node] = scopeDepth;
+        slots[node] = slot;
+        return node;
+    }
+
+    private int addTok(Token tok) {
+        if (tok == null) {
+            return -1;
+        }
+        ensureTokCapacity(numToks + 1);
+        TokenType type = tok.getType();
+        tokTypes[numToks] = type;
+        tokLines[numToks] = tok.getLineNum();
+        tokSymbolIds[numToks] = tok.getSymbolId();
+        tokNumBits[numToks] = getNumBits(tok);
+        tokSrcs[numToks] = tok.getSrc();
+        tokOffsets[numToks] = tok.getOffset();
+        tokLengths[numToks] = tok.getLength();
+        tokStrs[numToks] = tok.getSrc() == null ? tok.getValue() : null;
+        return numToks++;
+    }
+
+    private static long getNumBits(Token tok) {
+        if (tok.getType() == TokenType.INT_LITERAL) {
+            return tok.getIntValue();
+        } else if (tok.getType() == TokenType.FLOAT_LITERAL) {
+            return Double.doubleToRawLongBits(tok.getFloatValue());
+        }
+        return 0;
+    }
+
+    private void ensureNodeCapacity(int capacity) {
+        if (capacity > kinds.length) {
+            capacity = Math.max(capacity, kinds.length * 2);
+            kinds = Arrays.copyOf(kinds, capacity);
+            toks = Arrays.copyOf(toks, capacity);
+            dataTypes = Arrays.copyOf(dataTypes, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            lastChildren = Arrays.copyOf(lastChildren, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            scopeDepths = Arrays.copyOf(scopeDepths, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+        }
+    }
+
+    private void ensureTokCapacity(int capacity) {
+        if (capacity > tokTypes.length) {
+            capacity = Math.max(capacity, tokTypes.length * 2);
+            tokTypes = Arrays.copyOf(tokTypes, capacity);
+            tokLines = Arrays.copyOf(tokLines, capacity);
+            tokSymbolIds = Arrays.copyOf(tokSymbolIds, capacity);
+            tokNumBits = Arrays.copyOf(tokNumBits, capacity);
+            tokSrcs = Arrays.copyOf(tokSrcs, capacity);
+            tokOffsets = Arrays.copyOf(tokOffsets, capacity);
+            tokLengths = Arrays.copyOf(tokLengths, capacity);
+            tokStrs = Arrays.copyOf(tokStrs, capacity);
+        }
+    }
+
+    private void ensureRootCapacity(int capacity) {
+        if (capacity > roots.length) {
+            roots = Arrays.copyOf(roots, Math.max(capacity, roots.length * 2));
+        }
+    }
+
+    /**
+     * Appends a node to the children of another node.
+     *
+     * @param parent the index of the parent.
+     * @param child  the index of the child, which must not have a parent yet.
+     */
+    public void addChild(int parent, int child) {
+        int last = lastChildren[parent];
+        if (last < 0) {
+            firstChildren[parent] = child;
+        } else {
+            nextSiblings[last] = child;
+        }
+        lastChildren[parent] = child;
+    }
+
+    /**
+     * Copies a tree of AST objects into the arena and records its root. The objects can be dropped afterwards.
+     *
+     * @param root the root of the tree.
+     * @return the index of the root in the arena.
+     */
+    public int addTree(Node root) {
+        return addRoot(copyTree(root));
+    }
+
+    /**
+     * Records a node as the root of a tree, it must have been added before all the other nodes of its tree.
+     *
+     * @param root the index of the root.
+     * @return the index of the root.
+     */
+    public int addRoot(int root) {
+        ensureRootCapacity(numRoots + 1);
+        roots[numRoots++] = root;
+        return root;
+    }
+
+    /**
+     * Copies a tree of AST objects into the arena without recording its root, so that it can be added as the child
+     * of another node. The objects can be dropped afterwards.
+     *
+     * @param root the root of the tree.
+     * @return the index of the root in the arena.
+     */
+    public int copyTree(Node root) {
+        int rootIdx = -1;
+        int top = 0;
+        nodeStack[top] = root;
+        parentStack[top++] = -1;
+        while (top > 0) {
+            Node node = nodeStack[--top];
+            int parent = parentStack[top];
+            nodeStack[top] = null;
+            int idx;
+            if (node instanceof VarNode varNode) {
+                idx = addVarNode(node.getType(), node.getTok(), varNode.getDataType(), varNode.isMutable(),
+                        varNode.getScopeDepth(), varNode.getSlot());
+            } else if (node instanceof DataTypeNode dataTypeNode) {
+                idx = addNode(node.getType(), node.getTok(), dataTypeNode.getDataType());
+            } else {
+                idx = addNode(node.getType(), node.getTok(), null);
+            }
+            if (parent < 0) {
+                rootIdx = idx;
+            } else {
+                addChild(parent, idx);
+            }
+
+            // Push the children in reverse so that they are popped and appended in order
+            if (node instanceof BinaryNode binaryNode) {
+                top = pushNode(binaryNode.getRight(), idx, top);
+                top = pushNode(binaryNode.getLeft(), idx, top);
+            } else if (node instanceof UnaryNode unaryNode) {
+                top = pushNode(unaryNode.getChild(), idx, top);
+            } else if (node instanceof ScopeNode scopeNode) {
+                for (int i = scopeNode.countChildren() - 1; i >= 0; --i) {
+                    top = pushNode(scopeNode.getChild(i), idx, top);
+                }
+            }
+        }
+        return rootIdx;
+    }
+
+    private int pushNode(Node node, int parent, int top) {
+        if (node == null) {
+            return top;
+        }
+        if (top == nodeStack.length) {
+            nodeStack = Arrays.copyOf(nodeStack, top * 2);
+            parentStack = Arrays.copyOf(parentStack, top * 2);
+        }
+        nodeStack[top] = node;
+        parentStack[top] = parent;
+        return top + 1;
+    }
+
+    public int countNodes() {
+        return numNodes;
+    }
+
+    public int countToks() {
+        return numToks;
+    }
+
+    public int countRoots() {
+        return numRoots;
+    }
+
+    public int getRoot(int i) {
+        return roots[i];
+    }
+
+    public NodeType getKind(int node) {
+        return kinds[node];
+    }
+
+    /**
+     * Gets the index of a node's token in the arena's token table.
+     *
+     * @param node the index of the node.
+     * @return the index of the token or -1 if the node has no token.
+     */
+    public int getTokIndex(int node) {
+        return toks[node];
+    }
+
+    /**
+     * Gets a node's token, which is created from the token's columns every time it is requested.
+     *
+     * @param node the index of the node.
+     * @return the token or null if the node has no token.
+     */
+    public Token getTok(int node) {
+        int tok = toks[node];
+        return tok < 0 ? null : createTok(tok);
+    }
+
+    private Token createTok(int tok) {
+        TokenType type = tokTypes[tok];
+        boolean isNum = type == TokenType.INT_LITERAL || type == TokenType.FLOAT_LITERAL;
+        if (tokSrcs[tok] == null) {
+            return isNum ? Token.ofNumber(tokStrs[tok], type, tokLines[tok], tokNumBits[tok]) :
+                    new Token(tokStrs[tok], type, tokLines[tok], tokSymbolIds[tok]);
+        }
+        return isNum ? Token.ofNumber(tokSrcs[tok], tokOffsets[tok], tokLengths[tok], type, tokLines[tok],
+                tokNumBits[tok]) :
+                new Token(tokSrcs[tok], tokOffsets[tok], tokLengths[tok], type, tokLines[tok], tokSymbolIds[tok]);
+    }
+
+    /**
+     * Gets the ordinal of a node's data type.
+     *
+     * @param node the index of the node.
+     * @return the ordinal of the data type or -1 if the node has no data type.
+     */
+    public int getTypeId(int node) {
+        return dataTypes[node];
+    }
+
+    public TypeInfo getDataType(int node) {
+        int dataType = dataTypes[node];
+        return dataType < 0 ? null : typeTable.getType(dataType);
+    }
+
+    public int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+
+    public int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    public boolean isVar(int node) {
+        return (flags[node] & VAR) != 0;
+    }
+
+    public boolean isMutable(int node) {
+        return (flags[node] & MUTABLE) != 0;
+    }
+
+    /**
+     * Gets the depth of the scope that declares a variable node's variable.
+     *
+     * @param node the index of the node.
+     * @return the depth of the scope or -1 if the node is not a variable node.
+     */
+    public int getScopeDepth(int node) {
+        return scopeDepths[node];
+    }
+
+    /**
+     * Gets the slot of a variable node's variable in the scope that declares it.
+     *
+     * @param node the index of the node.
+     * @return the slot or -1 if the node is not a variable node.
+     */
+    public int getSlot(int node) {
+        return slots[node];
+    }
+
+    /**
+     * Serializes the trees added with addTree() from a given root on into a compact form. Nodes and tokens are written
+     * in columns with the indices relative to the first tree, followed by the tokens' text in UTF-8.
+     *
+     * @param firstRoot the index of the first root to be serialized.
+     * @return a buffer that holds the serialized trees, positioned at its beginning.
+     */
+    public ByteBuffer serialize(int firstRoot) {
+        int firstNode = firstRoot < numRoots ? roots[firstRoot] : numNodes;
+        int firstTok = numToks;
+        for (int i = firstNode; i < numNodes; ++i) {
+            if (toks[i] >= 0) {
+                firstTok = Math.min(firstTok, toks[i]);
+            }
+        }
+        int nodeCount = numNodes - firstNode;
+        int tokCount = numToks - firstTok;
+        int rootCount = numRoots - firstRoot;
+        byte[][] tokTexts = new byte[tokCount][];
+        int textLen = 0;
+        for (int i = 0; i < tokCount; ++i) {
+            String value = createTok(firstTok + i).getValue();
+            tokTexts[i] = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+            textLen += tokTexts[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 * 4 + nodeCount * (2 + 7 * 4) + rootCount * 4 +
+                tokCount * (1 + 3 * 4 + 8) + textLen);
+        buffer.putInt(nodeCount).putInt(tokCount).putInt(rootCount).putInt(textLen);
+        for (int i = firstNode; i < numNodes; ++i) {
+            buffer.put((byte) kinds[i].ordinal());
+            buffer.put((byte) flags[i]);
+            buffer.putInt(toks[i] < 0 ? -1 : toks[i] - firstTok);
+            buffer.putInt(dataTypes[i]);
+            buffer.putInt(firstChildren[i] < 0 ? -1 : firstChildren[i] - firstNode);
+            buffer.putInt(nextSiblings[i] < 0 ? -1 : nextSiblings[i] - firstNode);
+            buffer.putInt(lastChildren[i] < 0 ? -1 : lastChildren[i] - firstNode);
+            buffer.putInt(scopeDepths[i]);
+            buffer.putInt(slots[i]);
+        }
+        for (int i = firstRoot; i < numRoots; ++i) {
+            buffer.putInt(roots[i] - firstNode);
+        }
+        for (int i = 0; i < tokCount; ++i) {
+            int tok = firstTok + i;
+            buffer.put((byte) tokTypes[tok].ordinal());
+            buffer.putInt(tokLines[tok]);
+            buffer.putInt(tokSymbolIds[tok]);
+            buffer.putInt(tokTexts[i].length);
+            buffer.putLong(tokNumBits[tok]);
+        }
+        for (byte[] tokText : tokTexts) {
+            buffer.put(tokText);
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Appends trees serialized by serialize() to the arena. The tokens' text is not copied, the tokens refer to it in
+     * the source, which is usually a buffer mapped from a file.
+     *
+     * @param buffer the buffer that holds the serialized trees from its position on, its position is moved past them.
+     * @param src    the source that reads the text in the buffer by absolute position.
+     * @throws IllegalArgumentException if the size of the serialized trees does not match the buffer or they hold an
+     *                                  invalid type, index or length, in which case the arena is not modified and the
+     *                                  buffer's position is not moved.
+     */
+    public void deserialize(ByteBuffer buffer, TokenSrc src) throws IllegalArgumentException {
+        if (buffer.remaining() < 4 * 4) {
+            throw new IllegalArgumentException("Truncated AST");
+        }
+        int start = buffer.position();
+        int nodeCount = buffer.getInt(start);
+        int tokCount = buffer.getInt(start + 4);
+        int rootCount = buffer.getInt(start + 8);
+        int textLen = buffer.getInt(start + 12);
+        if (nodeCount < 0 || tokCount < 0 || rootCount < 0 || textLen < 0 || buffer.remaining() - 4 * 4 !=
+                (long) nodeCount * (2 + 7 * 4) + (long) rootCount * 4 + (long) tokCount * (1 + 3 * 4 + 8) + textLen) {
+            throw new IllegalArgumentException("Invalid AST size");
+        }
+        buffer.position(start + 4 * 4);
+
+        int firstNode = numNodes;
+        int firstTok = numToks;
+        ensureNodeCapacity(numNodes + nodeCount);
+        ensureTokCapacity(numToks + tokCount);
+        ensureRootCapacity(numRoots + rootCount);
+        try {
+            // The nodes are in the order they were added, so a node's children and next sibling come after it, which
+            // keeps a walk from looping even if the data is corrupt
+            for (int i = firstNode; i < firstNode + nodeCount; ++i) {
+                int node = i - firstNode;
+                kinds[i] = NODE_TYPES[checkIndex(buffer.get() & 0xFF, 0, NODE_TYPES.length, "node type")];
+                flags[i] = buffer.get();
+                if ((flags[i] & ~(VAR | MUTABLE)) != 0) {
+                    throw new IllegalArgumentException("Invalid node flags");
+                }
+                toks[i] = shiftIndex(checkIndex(buffer.getInt(), 0, tokCount, "token"), firstTok);
+                dataTypes[i] = checkIndex(buffer.getInt(), 0, typeTable.countTypes(), "data type");
+                firstChildren[i] = shiftIndex(checkIndex(buffer.getInt(), node + 1, nodeCount, "child"), firstNode);
+                nextSiblings[i] = shiftIndex(checkIndex(buffer.getInt(), node + 1, nodeCount, "sibling"), firstNode);
+                lastChildren[i] = shiftIndex(checkIndex(buffer.getInt(), node + 1, nodeCount, "child"), firstNode);
+                if ((firstChildren[i] < 0) != (lastChildren[i] < 0)) {
+                    throw new IllegalArgumentException("Invalid child index");
+                }
+                scopeDepths[i] = checkIndex(buffer.getInt(), 0, Integer.MAX_VALUE, "scope depth");
+                slots[i] = checkIndex(buffer.getInt(), 0, Integer.MAX_VALUE, "slot");
+            }
+            for (int i = numRoots; i < numRoots + rootCount; ++i) {
+                int root = buffer.getInt();
+                if (root < 0 || root >= nodeCount) {
+                    throw new IllegalArgumentException("Invalid root index");
+                }
+                roots[i] = root + firstNode;
+            }
+            int textOffset = buffer.position() + tokCount * (1 + 3 * 4 + 8);
+            int textEnd = textOffset + textLen;
+            for (int i = firstTok; i < firstTok + tokCount; ++i) {
+                tokTypes[i] = TOK_TYPES[checkIndex(buffer.get() & 0xFF, 0, TOK_TYPES.length, "token type")];
+                tokLines[i] = buffer.getInt();
+                tokSymbolIds[i] = checkIndex(buffer.getInt(), 0, Integer.MAX_VALUE, "symbol");
+                tokLengths[i] = buffer.getInt();
+                tokNumBits[i] = buffer.getLong();
+                if (tokLines[i] < 0 || tokLengths[i] < 0 || tokLengths[i] > textEnd - textOffset) {
+                    throw new IllegalArgumentException("Invalid token");
+                }
+                tokSrcs[i] = src;
+                tokOffsets[i] = textOffset;
+                tokStrs[i] = null;
+                textOffset += tokLengths[i];
+            }
+            if (textOffset != textEnd) {
+                throw new IllegalArgumentException("Invalid AST size");
+            }
+            buffer.position(textOffset);
+        } catch (IllegalArgumentException e) {
+            // Nothing has been counted yet, only the sources of the tokens that were read have to be released
+            Arrays.fill(tokSrcs, firstTok, firstTok + tokCount, null);
+            buffer.position(start);
+            throw e;
+        }
+        numNodes += nodeCount;
+        numToks += tokCount;
+        numRoots += rootCount;
+    }
+
+    /**
+     * Checks an index read from serialized trees.
+     *
+     * @param index the index, -1 stands for a missing one.
+     * @param min   the smallest valid index.
+     * @param count the number of valid indices from 0 on.
+     * @param what  the kind of index.
+     * @return the index.
+     * @throws IllegalArgumentException if the index is neither -1 nor between min and count.
+     */
+    private static int checkIndex(int index, int min, int count, String what) throws IllegalArgumentException {
+        if (index != -1 && (index < min || index >= count)) {
+            throw new IllegalArgumentException("Invalid " + what + " index");
+        }
+        return index;
+    }
+
+    private static int shiftIndex(int index, int base) {
+        return index < 0 ? -1 : index + base;
+    }
+
+    /**
+     * Walks the tree rooted at a node in depth-first order without recursion.
+     *
+     * @param root    the index of the root.
+     * @param visitor the visitor that is called when entering and exiting every node.
+     */
+    public void walk(int root, AstVisitor visitor) {
+        walk(new AstCursor(this), root, visitor);
+    }
+
+    /**
+     * Walks the tree rooted at a node in depth-first order without recursion, reusing a cursor.
+     *
+     * @param cursor  the cursor to be moved through the tree.
+     * @param root    the index of the root.
+     * @param visitor the visitor that is called when entering and exiting every node.
+     */
+    public void walk(AstCursor cursor, int root, AstVisitor visitor) {
+        cursor.reset(root);
+        boolean visitChildren = visitor.enter(cursor);
+        while (true) {
+            if (visitChildren && cursor.toFirstChild()) {
+                visitChildren = visitor.enter(cursor);
+                continue;
+            }
+            // The node has no children left to visit, exit it and its ancestors until one has a next sibling
+            visitor.exit(cursor);
+            while (!cursor.toNextSibling()) {
+                if (!cursor.toParent()) {
+                    return;
+                }
+                visitor.exit(cursor);
+            }
+            visitChildren = visitor.enter(cursor);
+        }
+    }
+
+    /**
+     * Converts the tree rooted at a node to the same JSON string as Node.toJson().
+     *
+     * @param root the index of the root.
+     * @return the JSON string of the tree.
+     */
+    public String toJson(int root) {
+        StringBuilder jsonStr = new StringBuilder();
+        walk(root, new AstVisitor() {
+            @Override
+            public boolean enter(AstCursor cursor) {
+                int parent = cursor.getParent();
+                if (parent >= 0 && kinds[parent] == NodeType.SCOPE) {
+                    jsonStr.append("{\n");
+                }
+                NodeType kind = cursor.getKind();
+                jsonStr.append("\"Node type\": \"").append(kind).append("\"");
+                if (kind != NodeType.SCOPE) {
+                    TypeInfo dataType = cursor.getDataType();
+                    jsonStr.append(",\n\"Data type\": \"").append(dataType.getId())
+                            .append("\",\n\"Size\": \"").append(dataType.getSize()).append("\"");
+                }
+                if (cursor.isVar()) {
+                    jsonStr.append(",\n\"Mutable\": \"").append(cursor.isMutable())
+                            .append("\",\n\"Id\": \"").append(cursor.getTok().getValue()).append("\"");
+                }
+                switch (kind) {
+                    case BINARY_OP, DEF -> jsonStr.append(",\n\"Children\": [\n{\n");
+                    case UNARY_OP -> jsonStr.append("\",\\n\"Children\": [\n{\n\"");
+                    case SCOPE -> jsonStr.append(",\n\"Children\": [\n");
+                }
+                return true;
+            }
+
+            @Override
+            public void exit(AstCursor cursor) {
+                int node = cursor.getNode();
+                switch (kinds[node]) {
+                    case BINARY_OP, DEF, SCOPE -> jsonStr.append("\n]");
+                    case UNARY_OP -> jsonStr.append("\n]\n}\n");
+                }
+                int parent = cursor.getParent();
+                if (parent < 0) {
+                    return;
+                }
+                switch (kinds[parent]) {
+                    case BINARY_OP, DEF -> jsonStr.append(firstChildren[parent] == node ? "\n},\n{\n" : "\n}");
+                    case SCOPE -> jsonStr.append("\n},");
+                }
+            }
+        });
+        return jsonStr.toString();
+    }
+}
@@ -0,0 +1,118 @@
+package Nodes;
+
+import Exceptions.SyntaxError;
+import Lexer.Lexer;
+import Parser.SrcParser;
+import Tokens.TokenType;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AstArenaTest {
+    private final static String SRC = "var a = 1;\nvar b: float = -a * (2.5 + a);\n{ var c = b; { c = c - -b; } }\n;";
+
+    private String parseToJson(String input) {
+        StringWriter strWriter = new StringWriter();
+        new SrcParser(new BufferedReader(new StringReader(input)), new BufferedWriter(strWriter)).parseSrc();
+        return strWriter.toString();
+    }
+
+    private void parseToArena(String input, AstArena arena) throws SyntaxError, IOException {
+        new SrcParser(new Lexer(new BufferedReader(new StringReader(input))), null).parseSrc(arena);
+    }
+
+    private String arenaToJson(AstArena arena) {
+        StringBuilder jsonStr = new StringBuilder("[\n");
+        for (int i = 0; i < arena.countRoots(); ++i) {
+            jsonStr.append("{\n").append(arena.toJson(arena.getRoot(i))).append("\n},\n");
+        }
+        return jsonStr.append("\n]").toString();
+    }
+
+    @Test
+    void testSameJson() {
+        try {
+            AstArena arena = new AstArena();
+            parseToArena(SRC, arena);
+            assertEquals(parseToJson(SRC), arenaToJson(arena));
+
+            // The arena is filled again after a reset
+            int numNodes = arena.countNodes();
+            arena.reset();
+            assertEquals(0, arena.countNodes());
+            parseToArena(SRC, arena);
+            assertEquals(numNodes, arena.countNodes());
+            assertEquals(parseToJson(SRC), arenaToJson(arena));
+
+            // Tokens that refer to their text in the source give the same trees and lines
+            arena.reset();
+            ByteBuffer bytes = ByteBuffer.wrap(SRC.getBytes(StandardCharsets.UTF_8));
+            new SrcParser(new Lexer(new Lexer(bytes).lexAll()), null).parseSrc(arena);
+            assertEquals(parseToJson(SRC), arenaToJson(arena));
+            int block = arena.getNextSibling(arena.getNextSibling(arena.getFirstChild(arena.getRoot(0))));
+            int decl = arena.getFirstChild(arena.getFirstChild(block));
+            assertEquals("c", arena.getTok(decl).getValue());
+            assertEquals(3, arena.getTok(decl).getLineNum());
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    void testCursor() {
+        try {
+            AstArena arena = new AstArena();
+            parseToArena("var x = 1 + 2;", arena);
+            AstCursor cursor = new AstCursor(arena);
+            cursor.reset(arena.getRoot(0));
+            assertEquals(NodeType.SCOPE, cursor.getKind());
+            assertTrue(cursor.toFirstChild());
+            assertEquals(NodeType.DEF, cursor.getKind());
+            assertTrue(cursor.toFirstChild());
+            assertEquals(NodeType.DECL, cursor.getKind());
+            assertTrue(cursor.isVar());
+            assertTrue(cursor.isMutable());
+            assertEquals("x", cursor.getTok().getValue());
+            assertEquals(0, cursor.getScopeDepth());
+            assertEquals(0, cursor.getSlot());
+            assertFalse(cursor.toFirstChild());
+            assertTrue(cursor.toNextSibling());
+            assertEquals(TokenType.ADD, cursor.getTok().getType());
+            assertEquals("int", cursor.getDataType().getId());
+            assertFalse(cursor.toNextSibling());
+            assertEquals(2, cursor.getDepth());
+            assertTrue(cursor.toParent());
+            assertTrue(cursor.toParent());
+            assertFalse(cursor.toParent());
+
+            // Count the terminal nodes, the declaration's lhs is not one of them
+            int[] count = {0};
+            arena.walk(arena.getRoot(0), new AstVisitor() {
+                @Override
+                public boolean enter(AstCursor cursor) {
+                    if (cursor.getKind() == NodeType.TERMINAL) {
+                        ++count[0];
+                    }
+                    return true;
+                }
+
+                @Override
+                public void exit(AstCursor cursor) {
+                }
+            });
+            assertEquals(2, count[0]);
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package Nodes;
+
+import Tokens.Token;
+import Types.TypeInfo;
+
+import java.util.Arrays;
+
+public class AstCursor {
+    private final AstArena arena;
+    // The node the cursor is at and the nodes on the path from the root the cursor was reset to
+    private int node = -1;
+    private int[] path = new int[16];
+    private int depth = 0;
+
+    public AstCursor(AstArena arena) {
+        this.arena = arena;
+    }
+
+    /**
+     * Moves the cursor to a node, which becomes the root that the cursor cannot move above.
+     *
+     * @param root the index of the node.
+     */
+    public void reset(int root) {
+        node = root;
+        depth = 0;
+    }
+
+    public int getNode() {
+        return node;
+    }
+
+    /**
+     * Gets the number of nodes between the root the cursor was reset to and the current node.
+     *
+     * @return 0 if the cursor is at the root.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the parent of the current node.
+     *
+     * @return the index of the parent or -1 if the cursor is at the root.
+     */
+    public int getParent() {
+        return depth == 0 ? -1 : path[depth - 1];
+    }
+
+    public NodeType getKind() {
+        return arena.getKind(node);
+    }
+
+    public Token getTok() {
+        return arena.getTok(node);
+    }
+
+    public TypeInfo getDataType() {
+        return arena.getDataType(node);
+    }
+
+    public boolean isVar() {
+        return arena.isVar(node);
+    }
+
+    public boolean isMutable() {
+        return arena.isMutable(node);
+    }
+
+    public int getScopeDepth() {
+        return arena.getScopeDepth(node);
+    }
+
+    public int getSlot() {
+        return arena.getSlot(node);
+    }
+
+    /**
+     * Moves the cursor to the first child of the current node.
+     *
+     * @return true if the node has a child and false otherwise, in which case the cursor does not move.
+     */
+    public boolean toFirstChild() {
+        int child = arena.getFirstChild(node);
+        if (child < 0) {
+            return false;
+        }
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, depth * 2);
+        }
+        path[depth++] = node;
+        node = child;
+        return true;
+    }
+
+    /**
+     * Moves the cursor to the next sibling of the current node.
+     *
+     * @return true if the node has a next sibling and false otherwise, in which case the cursor does not move.
+     */
+    public boolean toNextSibling() {
+        // The root's siblings are outside the tree the cursor was reset to
+        int sibling = depth == 0 ? -1 : arena.getNextSibling(node);
+        if (sibling < 0) {
+            return false;
+        }
+        node = sibling;
+        return true;
+    }
+
+    /**
+     * Moves the cursor to the parent of the current node.
+     *
+     * @return true if the cursor has moved and false if it is at the root.
+     */
+    public boolean toParent() {
+        if (depth == 0) {
+            return false;
+        }
+        node = path[--depth];
+        return true;
+    }
+}
@@ -0,0 +1,18 @@
+package Nodes;
+
+public interface AstVisitor {
+    /**
+     * Visits a node in an AST arena before its children.
+     *
+     * @param cursor the cursor positioned at the node.
+     * @return true if the node's children are to be visited and false otherwise.
+     */
+    boolean enter(AstCursor cursor);
+
+    /**
+     * Visits a node in an AST arena after its children.
+     *
+     * @param cursor the cursor positioned at the node.
+     */
+    void exit(AstCursor cursor);
+}
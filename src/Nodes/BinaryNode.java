@@ -3,6 +3,8 @@ package Nodes;
 import Tokens.Token;
 import Types.TypeInfo;
 
+import java.util.ArrayDeque;
+
 public class BinaryNode extends DataTypeNode {
     private DataTypeNode left;
     private DataTypeNode right;
@@ -28,9 +30,11 @@ public class BinaryNode extends DataTypeNode {
     }
 
     @Override
-    public String toJson() {
-        return super.toJson() + ",\n\"Children\": [\n{\n" +
-                left.toJson() + "\n},\n{\n" +
-                right.toJson() + "\n}\n]";
+    protected void pushJsonParts(ArrayDeque<Object> parts) {
+        parts.push("\n}\n]");
+        parts.push(right);
+        parts.push("\n},\n{\n");
+        parts.push(left);
+        parts.push(getJsonFields() + ",\n\"Children\": [\n{\n");
     }
 }
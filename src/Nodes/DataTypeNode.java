@@ -20,8 +20,8 @@ public class DataTypeNode extends Node {
     }
 
     @Override
-    public String toJson() {
-        return super.toJson() +
+    protected String getJsonFields() {
+        return super.getJsonFields() +
                 ",\n\"Data type\": \"" + dataType.getId() +
                 "\",\n\"Size\": \"" + dataType.getSize() + "\"";
     }
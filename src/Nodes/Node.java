@@ -2,8 +2,7 @@ package Nodes;
 
 import Tokens.Token;
 
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.ArrayDeque;
 
 public class Node {
     protected final Token tok;
@@ -22,7 +21,43 @@ public class Node {
         return type;
     }
 
+    /**
+     * Converts the tree rooted at the node to a JSON string. The tree is expanded with an explicit stack of parts
+     * instead of recursion so that deep trees do not overflow the call stack.
+     *
+     * @return the JSON string of the tree.
+     */
     public String toJson() {
+        StringBuilder jsonStr = new StringBuilder();
+        ArrayDeque<Object> parts = new ArrayDeque<>();
+        parts.push(this);
+        while (!parts.isEmpty()) {
+            Object part = parts.pop();
+            if (part instanceof Node node) {
+                node.pushJsonParts(parts);
+            } else {
+                jsonStr.append((String) part);
+            }
+        }
+        return jsonStr.toString();
+    }
+
+    /**
+     * Pushes the parts of the node's JSON string onto a stack in reverse order. Children are pushed as nodes to be
+     * expanded when they are popped.
+     *
+     * @param parts the stack of strings and nodes.
+     */
+    protected void pushJsonParts(ArrayDeque<Object> parts) {
+        parts.push(getJsonFields());
+    }
+
+    /**
+     * Gets the JSON fields of the node without its children.
+     *
+     * @return the JSON fields.
+     */
+    protected String getJsonFields() {
         return "\"Node type\": \"" + type + "\"";
     }
 }
@@ -1,5 +1,6 @@
 package Nodes;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 
 public class ScopeNode extends Node {
@@ -17,13 +18,22 @@ public class ScopeNode extends Node {
         return children.size();
     }
 
+    public Node getChild(int i) {
+        return children.get(i);
+    }
+
+    public void setChild(int i, Node child) {
+        children.set(i, child);
+    }
+
     @Override
-    public String toJson() {
-        StringBuilder jsonStr = new StringBuilder(super.toJson() + ",\n\"Children\": [\n");
-        for (Node child : children) {
-            jsonStr.append("{\n").append(child.toJson()).append("\n},");
+    protected void pushJsonParts(ArrayDeque<Object> parts) {
+        parts.push("\n]");
+        for (int i = children.size() - 1; i >= 0; --i) {
+            parts.push("\n},");
+            parts.push(children.get(i));
+            parts.push("{\n");
         }
-        jsonStr.append("\n]");
-        return jsonStr.toString();
+        parts.push(getJsonFields() + ",\n\"Children\": [\n");
     }
 }
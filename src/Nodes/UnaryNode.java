@@ -3,6 +3,8 @@ package Nodes;
 import Tokens.Token;
 import Types.TypeInfo;
 
+import java.util.ArrayDeque;
+
 public class UnaryNode extends DataTypeNode {
     private DataTypeNode child;
 
@@ -19,7 +21,9 @@ public class UnaryNode extends DataTypeNode {
     }
 
     @Override
-    public String toJson() {
-        return super.toJson() + "\",\\n\"Children\": [\n{\n\"" + child.toJson() + "\n]\n}\n";
+    protected void pushJsonParts(ArrayDeque<Object> parts) {
+        parts.push("\n]\n}\n");
+        parts.push(child);
+        parts.push(getJsonFields() + "\",\\n\"Children\": [\n{\n\"");
     }
 }
@@ -5,18 +5,36 @@ import Types.TypeInfo;
 
 public class VarNode extends DataTypeNode {
     private final boolean mutable;
+    // The address of the variable's storage resolved at parse time: the depth of the scope that declares it and its
+    // slot in that scope
+    private final int scopeDepth;
+    private final int slot;
 
-    public VarNode(Token tok, NodeType type, TypeInfo dataType, boolean mutable) {
+    public VarNode(Token tok, NodeType type, TypeInfo dataType, boolean mutable, int scopeDepth, int slot) {
         super(tok, type, dataType);
         this.mutable = mutable;
+        this.scopeDepth = scopeDepth;
+        this.slot = slot;
     }
 
     public boolean isMutable() {
         return mutable;
     }
 
+    public int getScopeDepth() {
+        return scopeDepth;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public int getSymbolId() {
+        return tok.getSymbolId();
+    }
+
     @Override
-    public String toJson() {
-        return super.toJson() + ",\n\"Mutable\": \"" + mutable + "\",\n\"Id\": \"" + tok.getValue() + "\"";
+    protected String getJsonFields() {
+        return super.getJsonFields() + ",\n\"Mutable\": \"" + mutable + "\",\n\"Id\": \"" + tok.getValue() + "\"";
     }
 }
@@ -1,115 +1,129 @@
 package Operators;
 
+import Tokens.PerfectHash;
 import Tokens.TokenType;
 import Types.TypeInfo;
 import Types.TypeTable;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Map;
 
 public class OperatorTable {
-    private final HashMap<String, TokenType> opMap = new HashMap<>();
-    private final HashSet<TokenType> prefixSet = new HashSet<>();
-    private final HashSet<TokenType> infixSet = new HashSet<>();
-    private final HashSet<TokenType> postfixSet = new HashSet<>();
-    private final HashMap<TokenType, Integer> precedMap = new HashMap<>();
-    // Associativity table, true means left-to-right, false means right-to-left
-    private final HashMap<TokenType, Boolean> associativityMap = new HashMap<>();
-    // This table stores the data type compatibility for each operator
-    // When an operator is applied, it is used to check if the operands' data types are compatible
-    // If they are, it finds the data type of the result after applying the operator
-    private final HashMap<OperatorCompat, TypeInfo> compatMap = new HashMap<>();
+    private final Map<String, TokenType> opMap;
+    // Perfect hash over the operators that is used for lookups
+    private final PerfectHash<TokenType> opHash;
+    // Metadata of every token type indexed by ordinal, packed into an int so that the parser looks it up once per
+    // operator: the flags are in the lowest byte and the precedence, -1 if the token has none, is in the rest
+    private final int[] opInfos = new int[TokenType.values().length];
+    private final static int PREFIX = 1;
+    private final static int INFIX = 1 << 1;
+    private final static int POSTFIX = 1 << 2;
+    // Set if the operator is left-to-right, otherwise, it is right-to-left
+    private final static int LEFT_TO_RIGHT = 1 << 3;
+    private final static int PRECED_SHIFT = 8;
+    // These tables store the data type compatibility for each operator
+    // When an operator is applied, they are used to check if the operands' data types are compatible
+    // If they are, they give the data type of the result after applying the operator
+    // The tables are indexed by the operator's ordinal and the operands' type ordinals, a null entry means the
+    // operands are not compatible
+    private final TypeInfo[][] unaryCompats;
+    private final TypeInfo[][][] binaryCompats;
+    // Created with the class, so the compatibility tables are complete before any thread can read them
     private final static OperatorTable INSTANCE = new OperatorTable();
-    private static boolean init = false;
 
     private OperatorTable() {
+        // Add operators to table
+        HashMap<String, TokenType> map = new HashMap<>();
+        map.put("+", TokenType.ADD);
+        map.put("-", TokenType.SUB);
+        map.put("*", TokenType.MULT);
+        map.put("/", TokenType.DIV);
+        map.put("%", TokenType.MOD);
+        map.put(".", TokenType.DOT);
+        map.put(":", TokenType.COLON);
+        map.put("=", TokenType.ASSIGNMENT);
+        map.put("(", TokenType.LPAREN);
+        map.put(")", TokenType.RPAREN);
+        map.put("{", TokenType.LBRACKETS);
+        map.put("}", TokenType.RBRACKETS);
+        map.put(";", TokenType.SEMICOLON);
+        opMap = Collections.unmodifiableMap(map);
+        opHash = new PerfectHash<>(map);
+
+        // Initialize prefix table
+        Arrays.fill(opInfos, -1 << PRECED_SHIFT);
+        addFlags(TokenType.ADD, PREFIX);
+        addFlags(TokenType.SUB, PREFIX);
+
+        // Initialize infix table
+        addFlags(TokenType.ADD, INFIX);
+        addFlags(TokenType.SUB, INFIX);
+        addFlags(TokenType.MULT, INFIX);
+        addFlags(TokenType.DIV, INFIX);
+        addFlags(TokenType.MOD, INFIX);
+        addFlags(TokenType.ASSIGNMENT, INFIX);
+
+        // Initialize postfix table
+
+        // Initialize precedence table
+        setPreced(TokenType.ADD, 10);
+        setPreced(TokenType.SUB, 10);
+        setPreced(TokenType.MULT, 20);
+        setPreced(TokenType.DIV, 20);
+        setPreced(TokenType.ASSIGNMENT, 5);
+
+        // Initialize associativity table
+        addFlags(TokenType.ADD, LEFT_TO_RIGHT);
+        addFlags(TokenType.SUB, LEFT_TO_RIGHT);
+        addFlags(TokenType.MULT, LEFT_TO_RIGHT);
+        addFlags(TokenType.DIV, LEFT_TO_RIGHT);
+
+        // Initialize operator type compatibility table
+        TypeTable typeTable = TypeTable.getInstance();
+        TypeInfo intType = typeTable.getType(TokenType.INT_LITERAL);
+        TypeInfo floatType = typeTable.getType(TokenType.FLOAT_LITERAL);
+        TypeInfo boolType = typeTable.getType(TokenType.BOOL_LITERAL);
+        int numOps = TokenType.values().length;
+        int numTypes = typeTable.countTypes();
+        unaryCompats = new TypeInfo[numOps][numTypes];
+        binaryCompats = new TypeInfo[numOps][numTypes][numTypes];
+        // Unary operators
+        registerCompat(new UnaryOperatorCompat(TokenType.ADD, intType), intType);
+        registerCompat(new UnaryOperatorCompat(TokenType.ADD, floatType), floatType);
+        registerCompat(new UnaryOperatorCompat(TokenType.SUB, intType), intType);
+        registerCompat(new UnaryOperatorCompat(TokenType.SUB, floatType), floatType);
+        // Binary operators
+        registerCompat(new BinaryOperatorCompat(TokenType.ADD, intType, intType), intType);
+        registerCompat(new BinaryOperatorCompat(TokenType.ADD, intType, floatType), floatType);
+        registerCompat(new BinaryOperatorCompat(TokenType.ADD, floatType, intType), floatType);
+        registerCompat(new BinaryOperatorCompat(TokenType.ADD, floatType, floatType), floatType);
+        registerCompat(new BinaryOperatorCompat(TokenType.SUB, intType, intType), intType);
+        registerCompat(new BinaryOperatorCompat(TokenType.SUB, intType, floatType), floatType);
+        registerCompat(new BinaryOperatorCompat(TokenType.SUB, floatType, intType), floatType);
+        registerCompat(new BinaryOperatorCompat(TokenType.SUB, floatType, floatType), floatType);
+        registerCompat(new BinaryOperatorCompat(TokenType.MULT, intType, intType), intType);
+        registerCompat(new BinaryOperatorCompat(TokenType.MULT, intType, floatType), floatType);
+        registerCompat(new BinaryOperatorCompat(TokenType.MULT, floatType, intType), floatType);
+        registerCompat(new BinaryOperatorCompat(TokenType.MULT, floatType, floatType), floatType);
+        registerCompat(new BinaryOperatorCompat(TokenType.DIV, intType, intType), intType);
+        registerCompat(new BinaryOperatorCompat(TokenType.DIV, intType, floatType), floatType);
+        registerCompat(new BinaryOperatorCompat(TokenType.DIV, floatType, intType), floatType);
+        registerCompat(new BinaryOperatorCompat(TokenType.DIV, floatType, floatType), floatType);
+        registerCompat(new BinaryOperatorCompat(TokenType.ASSIGNMENT, intType, intType), intType);
+        registerCompat(new BinaryOperatorCompat(TokenType.ASSIGNMENT, intType, floatType), intType);
+        registerCompat(new BinaryOperatorCompat(TokenType.ASSIGNMENT, floatType, intType), floatType);
+        registerCompat(new BinaryOperatorCompat(TokenType.ASSIGNMENT, floatType, floatType), floatType);
+        registerCompat(new BinaryOperatorCompat(TokenType.ASSIGNMENT, boolType, boolType), boolType);
     }
 
     /**
-     * Initializes the only instance of OperatorTable if it has not been initialized and then returns it.
+     * Gets the only instance of OperatorTable, which cannot be modified and can be shared between threads.
      *
      * @return an OperatorTable object.
      */
     public static OperatorTable getInstance() {
-        if (!init) {
-            // Add operators to table
-            INSTANCE.opMap.put("+", TokenType.ADD);
-            INSTANCE.opMap.put("-", TokenType.SUB);
-            INSTANCE.opMap.put("*", TokenType.MULT);
-            INSTANCE.opMap.put("/", TokenType.DIV);
-            INSTANCE.opMap.put("%", TokenType.MOD);
-            INSTANCE.opMap.put(".", TokenType.DOT);
-            INSTANCE.opMap.put(":", TokenType.COLON);
-            INSTANCE.opMap.put("=", TokenType.ASSIGNMENT);
-            INSTANCE.opMap.put("(", TokenType.LPAREN);
-            INSTANCE.opMap.put(")", TokenType.RPAREN);
-            INSTANCE.opMap.put("{", TokenType.LBRACKETS);
-            INSTANCE.opMap.put("}", TokenType.RBRACKETS);
-            INSTANCE.opMap.put(";", TokenType.SEMICOLON);
-
-            // Initialize prefix table
-            INSTANCE.prefixSet.add(TokenType.ADD);
-            INSTANCE.prefixSet.add(TokenType.SUB);
-
-            // Initialize infix table
-            INSTANCE.infixSet.add(TokenType.ADD);
-            INSTANCE.infixSet.add(TokenType.SUB);
-            INSTANCE.infixSet.add(TokenType.MULT);
-            INSTANCE.infixSet.add(TokenType.DIV);
-            INSTANCE.infixSet.add(TokenType.MOD);
-            INSTANCE.infixSet.add(TokenType.ASSIGNMENT);
-
-            // Initialize postfix table
-
-            // Initialize precedence table
-            INSTANCE.precedMap.put(TokenType.ADD, 10);
-            INSTANCE.precedMap.put(TokenType.SUB, 10);
-            INSTANCE.precedMap.put(TokenType.MULT, 20);
-            INSTANCE.precedMap.put(TokenType.DIV, 20);
-            INSTANCE.precedMap.put(TokenType.ASSIGNMENT, 5);
-
-            // Initialize associativity table
-            INSTANCE.associativityMap.put(TokenType.ADD, true);
-            INSTANCE.associativityMap.put(TokenType.SUB, true);
-            INSTANCE.associativityMap.put(TokenType.MULT, true);
-            INSTANCE.associativityMap.put(TokenType.DIV, true);
-            INSTANCE.associativityMap.put(TokenType.ASSIGNMENT, false);
-
-            // Initialize operator type compatibility table
-            TypeTable typeTable = TypeTable.getInstance();
-            TypeInfo intType = typeTable.getType(TokenType.INT_LITERAL);
-            TypeInfo floatType = typeTable.getType(TokenType.FLOAT_LITERAL);
-            TypeInfo boolType = typeTable.getType(TokenType.BOOL_LITERAL);
-            // Unary operators
-            INSTANCE.registerCompat(new UnaryOperatorCompat(TokenType.ADD, intType), intType);
-            INSTANCE.registerCompat(new UnaryOperatorCompat(TokenType.ADD, floatType), floatType);
-            INSTANCE.registerCompat(new UnaryOperatorCompat(TokenType.SUB, intType), intType);
-            INSTANCE.registerCompat(new UnaryOperatorCompat(TokenType.SUB, floatType), floatType);
-            // Binary operators
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.ADD, intType, intType), intType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.ADD, intType, floatType), floatType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.ADD, floatType, intType), floatType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.ADD, floatType, floatType), floatType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.SUB, intType, intType), intType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.SUB, intType, floatType), floatType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.SUB, floatType, intType), floatType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.SUB, floatType, floatType), floatType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.MULT, intType, intType), intType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.MULT, intType, floatType), floatType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.MULT, floatType, intType), floatType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.MULT, floatType, floatType), floatType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.DIV, intType, intType), intType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.DIV, intType, floatType), floatType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.DIV, floatType, intType), floatType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.DIV, floatType, floatType), floatType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.ASSIGNMENT, intType, intType), intType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.ASSIGNMENT, intType, floatType), intType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.ASSIGNMENT, floatType, intType), floatType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.ASSIGNMENT, floatType, floatType), floatType);
-            INSTANCE.registerCompat(new BinaryOperatorCompat(TokenType.ASSIGNMENT, boolType, boolType), boolType);
-
-            init = true;
-        }
         return INSTANCE;
     }
 
@@ -120,7 +134,58 @@ public class OperatorTable {
      * @return a TokenType object as the operator's id if it exists, otherwise, return null.
      */
     public TokenType getId(String opStr) {
-        return opMap.get(opStr);
+        return opHash.get(opStr);
+    }
+
+    /**
+     * Gets the operator's id associated with a range of characters without creating a string.
+     *
+     * @param chars  the array that holds the characters.
+     * @param offset the position of the first character.
+     * @param length the number of characters.
+     * @return a TokenType object as the operator's id if it exists, otherwise, return null.
+     */
+    public TokenType getId(char[] chars, int offset, int length) {
+        return opHash.get(chars, offset, length);
+    }
+
+    /**
+     * Gets the operator's id associated with a range of UTF-8 encoded bytes without creating a string.
+     *
+     * @param bytes  the array that holds the bytes.
+     * @param offset the position of the first byte.
+     * @param length the number of bytes.
+     * @return a TokenType object as the operator's id if it exists, otherwise, return null.
+     */
+    public TokenType getId(byte[] bytes, int offset, int length) {
+        return opHash.get(bytes, offset, length);
+    }
+
+    /**
+     * Gets all operators in the table.
+     *
+     * @return a read-only map from operator strings to their ids.
+     */
+    public Map<String, TokenType> getOpMap() {
+        return opMap;
+    }
+
+    private void addFlags(TokenType id, int flags) {
+        opInfos[id.ordinal()] |= flags;
+    }
+
+    private void setPreced(TokenType id, int preced) {
+        opInfos[id.ordinal()] = (preced << PRECED_SHIFT) | (opInfos[id.ordinal()] & ((1 << PRECED_SHIFT) - 1));
+    }
+
+    /**
+     * Gets the metadata of an operator, which is decoded by the static methods of this class without further lookups.
+     *
+     * @param id operator's id.
+     * @return an int value that packs the operator's fixity, associativity and precedence.
+     */
+    public int getOpInfo(TokenType id) {
+        return opInfos[id.ordinal()];
     }
 
     /**
@@ -130,7 +195,7 @@ public class OperatorTable {
      * @return true if the token is a prefix operator and false otherwise.
      */
     public boolean isPrefix(TokenType id) {
-        return prefixSet.contains(id);
+        return isPrefix(getOpInfo(id));
     }
 
     /**
@@ -140,7 +205,7 @@ public class OperatorTable {
      * @return true if the token is an infix operator and false otherwise.
      */
     public boolean isInfix(TokenType id) {
-        return infixSet.contains(id);
+        return isInfix(getOpInfo(id));
     }
 
     /**
@@ -150,7 +215,7 @@ public class OperatorTable {
      * @return true if the token is a postfix operator and false otherwise.
      */
     public boolean isPostfix(TokenType id) {
-        return postfixSet.contains(id);
+        return isPostfix(getOpInfo(id));
     }
 
     /**
@@ -160,8 +225,7 @@ public class OperatorTable {
      * @return an int value representing the operator precedence.
      */
     public int getPreced(TokenType id) {
-        Integer preced = precedMap.get(id);
-        return preced == null ? -1 : preced;
+        return getPreced(getOpInfo(id));
     }
 
     /**
@@ -171,7 +235,7 @@ public class OperatorTable {
      * @return true if the operator left-to-right, otherwise, return false.
      */
     public boolean getAssociativity(TokenType id) {
-        return associativityMap.get(id);
+        return getAssociativity(getOpInfo(id));
     }
 
     /**
@@ -182,17 +246,46 @@ public class OperatorTable {
      * @return 1 if the first operator has higher priority, otherwise, return -1.
      */
     public int cmpPreced(TokenType id1, TokenType id2) {
-        int preced1 = getPreced(id1);
-        int preced2 = getPreced(id2);
+        return cmpPreced(getOpInfo(id1), getOpInfo(id2));
+    }
+
+    public static boolean isPrefix(int opInfo) {
+        return (opInfo & PREFIX) != 0;
+    }
+
+    public static boolean isInfix(int opInfo) {
+        return (opInfo & INFIX) != 0;
+    }
+
+    public static boolean isPostfix(int opInfo) {
+        return (opInfo & POSTFIX) != 0;
+    }
+
+    public static int getPreced(int opInfo) {
+        return opInfo >> PRECED_SHIFT;
+    }
+
+    public static boolean getAssociativity(int opInfo) {
+        return (opInfo & LEFT_TO_RIGHT) != 0;
+    }
+
+    /**
+     * Compares the precedences of two operators given their metadata.
+     *
+     * @param opInfo1 the first operator's metadata.
+     * @param opInfo2 the second operator's metadata.
+     * @return 1 if the first operator has higher priority, otherwise, return -1.
+     */
+    public static int cmpPreced(int opInfo1, int opInfo2) {
+        int preced1 = getPreced(opInfo1);
+        int preced2 = getPreced(opInfo2);
         if (preced1 != preced2) {
             // If the two precedences are not the same,
             // return 1 if the first operator has higher precedence, otherwise, return -1
             return Integer.compare(preced1, preced2);
         }
-        // Get the associativity of the first operator
-        boolean isOp1LToR = getAssociativity(id1);
         // Return 1 if the first operator is left-to-right, otherwise, return -1
-        return isOp1LToR ? 1 : -1;
+        return getAssociativity(opInfo1) ? 1 : -1;
     }
 
     /**
@@ -202,7 +295,14 @@ public class OperatorTable {
      * @param resultDataType the result's data type after applying the operator.
      */
     private void registerCompat(OperatorCompat opCompat, TypeInfo resultDataType) {
-        INSTANCE.compatMap.put(opCompat, resultDataType);
+        int op = opCompat.getId().ordinal();
+        if (opCompat instanceof UnaryOperatorCompat unaryOpCompat) {
+            unaryCompats[op][unaryOpCompat.getOperandDataType().getOrdinal()] = resultDataType;
+        } else {
+            BinaryOperatorCompat binaryOpCompat = (BinaryOperatorCompat) opCompat;
+            binaryCompats[op][binaryOpCompat.getLeftDataType().getOrdinal()]
+                    [binaryOpCompat.getRightDataType().getOrdinal()] = resultDataType;
+        }
     }
 
     /**
@@ -212,6 +312,43 @@ public class OperatorTable {
      * @return the result's data type.
      */
     public TypeInfo getCompatDataType(OperatorCompat opCompact) {
-        return compatMap.get(opCompact);
+        if (opCompact instanceof UnaryOperatorCompat unaryOpCompat) {
+            return getCompatDataType(unaryOpCompat.getId(), unaryOpCompat.getOperandDataType());
+        }
+        BinaryOperatorCompat binaryOpCompat = (BinaryOperatorCompat) opCompact;
+        return getCompatDataType(binaryOpCompat.getId(), binaryOpCompat.getLeftDataType(),
+                binaryOpCompat.getRightDataType());
+    }
+
+    /**
+     * Gets the result's data type after applying a unary operator to an operand without allocating.
+     *
+     * @param id              the operator's id.
+     * @param operandDataType the operand's data type.
+     * @return the result's data type if the operator is compatible with the operand, otherwise, return null.
+     */
+    public TypeInfo getCompatDataType(TokenType id, TypeInfo operandDataType) {
+        TypeInfo[] compats = unaryCompats[id.ordinal()];
+        int operand = operandDataType.getOrdinal();
+        // Types of extended type tables are not compatible with any operator
+        return operand < compats.length ? compats[operand] : null;
+    }
+
+    /**
+     * Gets the result's data type after applying a binary operator to two operands without allocating.
+     *
+     * @param id            the operator's id.
+     * @param leftDataType  the left operand's data type.
+     * @param rightDataType the right operand's data type.
+     * @return the result's data type if the operator is compatible with the operands, otherwise, return null.
+     */
+    public TypeInfo getCompatDataType(TokenType id, TypeInfo leftDataType, TypeInfo rightDataType) {
+        TypeInfo[][] compats = binaryCompats[id.ordinal()];
+        int left = leftDataType.getOrdinal();
+        int right = rightDataType.getOrdinal();
+        if (left >= compats.length || right >= compats.length) {
+            return null;
+        }
+        return compats[left][right];
     }
 }
@@ -0,0 +1,177 @@
+package Parser;
+
+import Keywords.KeywordTable;
+import Lexer.CharBuffer;
+import Nodes.AstArena;
+import Operators.OperatorTable;
+import Tokens.TokenType;
+import Types.TypeInfo;
+import Types.TypeTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class AstCache {
+    // "TPAC", written at the beginning of every cache file
+    private final static int MAGIC = 0x54504143;
+    // Changed whenever the layout of the cache files changes
+    private final static int FORMAT_VERSION = 2;
+    private final static int KEY_LEN = 32;
+    private final static int HEADER_LEN = 4 + 4 + KEY_LEN;
+    private final Path dir;
+    // The hash of the keyword, type and operator tables, which the cached ASTs depend on
+    private final byte[] tablesVersion;
+
+    /**
+     * Creates a cache that stores the ASTs of source files in a directory, one file per source content.
+     *
+     * @param dir the cache directory, which is created if it does not exist.
+     * @throws IOException if the directory cannot be created.
+     */
+    public AstCache(Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.tablesVersion = hashTables();
+    }
+
+    /**
+     * Computes the key of a source, which is the hash of its content and of the tables.
+     *
+     * @param src the buffer that holds the source between its position and limit, which are not modified.
+     * @return the key of the source.
+     */
+    public byte[] getKey(ByteBuffer src) {
+        MessageDigest digest = createDigest();
+        digest.update(tablesVersion);
+        digest.update(src.duplicate());
+        return digest.digest();
+    }
+
+    /**
+     * Loads the AST of a source into an arena by mapping its cache file into memory. The tokens' text is read from
+     * the mapped file when it is needed.
+     *
+     * @param key   the key of the source.
+     * @param arena the arena that receives the source's top-level scopes as its roots.
+     * @return true if the AST has been loaded and false if it is not in the cache, in which case the arena is not
+     * modified.
+     * @throws IOException if the cache file cannot be read.
+     */
+    public boolean load(byte[] key, AstArena arena) throws IOException {
+        Path path = getPath(key);
+        if (!Files.exists(path)) {
+            return false;
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < HEADER_LEN || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION ||
+                !buffer.slice(8, KEY_LEN).equals(ByteBuffer.wrap(key))) {
+            return false;
+        }
+        try {
+            arena.deserialize(buffer.position(HEADER_LEN), new CharBuffer(buffer.duplicate().position(0)));
+        } catch (IllegalArgumentException e) {
+            // The file is truncated or corrupt, it is replaced the next time the source is stored
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stores the AST of a source. The cache file is written to a temporary file first and then moved into place so
+     * that a file that is being read is never partially written.
+     *
+     * @param key       the key of the source.
+     * @param arena     the arena that holds the source's top-level scopes.
+     * @param firstRoot the index of the source's first top-level scope in the arena.
+     * @throws IOException if the cache file cannot be written.
+     */
+    public void store(byte[] key, AstArena arena, int firstRoot) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LEN).putInt(MAGIC).putInt(FORMAT_VERSION).put(key).flip();
+        ByteBuffer body = arena.serialize(firstRoot);
+        Path tmpPath = Files.createTempFile(dir, null, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining() || body.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, body});
+                }
+            }
+            Files.move(tmpPath, getPath(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+    }
+
+    private Path getPath(byte[] key) {
+        StringBuilder name = new StringBuilder(key.length * 2 + 4);
+        for (byte b : key) {
+            name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return dir.resolve(name.append(".ast").toString());
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hashes the contents of the keyword, type and operator tables, which determine how a source is parsed and how
+     * the data types are numbered in the cached ASTs.
+     *
+     * @return the hash of the tables.
+     */
+    private static byte[] hashTables() {
+        MessageDigest digest = createDigest();
+        TypeTable typeTable = TypeTable.getInstance();
+        OperatorTable opTable = OperatorTable.getInstance();
+        int numTypes = typeTable.countTypes();
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+
+        for (int i = 0; i < numTypes; ++i) {
+            TypeInfo type = typeTable.getType(i);
+            digest.update(type.getId().getBytes(StandardCharsets.UTF_8));
+            digest.update(buffer.clear().putInt(type.getSize()).flip());
+        }
+        for (Map.Entry<String, TokenType> kw : new TreeMap<>(KeywordTable.getInstance().getKwMap()).entrySet()) {
+            digest.update(kw.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update(buffer.clear().putInt(kw.getValue().ordinal()).flip());
+        }
+        for (Map.Entry<String, TokenType> op : new TreeMap<>(opTable.getOpMap()).entrySet()) {
+            digest.update(op.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update(buffer.clear().putInt(op.getValue().ordinal()).flip());
+        }
+        for (TokenType id : TokenType.values()) {
+            digest.update(buffer.clear().putInt(opTable.getOpInfo(id)).flip());
+            for (int i = 0; i < numTypes; ++i) {
+                TypeInfo operandType = typeTable.getType(i);
+                digest.update(buffer.clear().putInt(getOrdinal(opTable.getCompatDataType(id, operandType))).flip());
+                for (int j = 0; j < numTypes; ++j) {
+                    TypeInfo resultType = opTable.getCompatDataType(id, operandType, typeTable.getType(j));
+                    digest.update(buffer.clear().putInt(getOrdinal(resultType)).flip());
+                }
+            }
+        }
+        return digest.digest();
+    }
+
+    private static int getOrdinal(TypeInfo type) {
+        return type == null ? -1 : type.getOrdinal();
+    }
+}
@@ -0,0 +1,135 @@
+package Parser;
+
+import Exceptions.SyntaxError;
+import Lexer.Lexer;
+import Nodes.AstArena;
+import Tokens.TokenType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AstCacheTest {
+    private final static String SRC = "var a = .5e1;\nlet b: float = -a * (2. + a);\n{ var c = b; { c = c - -b; } }\n" +
+            "var d = true;";
+
+    private String toJson(AstArena arena, int firstRoot) {
+        StringBuilder jsonStr = new StringBuilder();
+        for (int i = firstRoot; i < arena.countRoots(); ++i) {
+            jsonStr.append(arena.toJson(arena.getRoot(i))).append("\n");
+        }
+        return jsonStr.toString();
+    }
+
+    private long countCacheFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    private AstArena parseToArena(String src) throws SyntaxError, IOException {
+        AstArena arena = new AstArena();
+        new SrcParser(new Lexer(new BufferedReader(new StringReader(src))), null).parseSrc(arena);
+        return arena;
+    }
+
+    @Test
+    void testLoad(@TempDir Path dir) {
+        try {
+            Path srcPath = dir.resolve("src.txt");
+            Files.writeString(srcPath, SRC);
+            AstCache cache = new AstCache(dir.resolve("cache"));
+
+            // The first parse stores the AST
+            AstArena parsedArena = new AstArena();
+            SrcParser.parseSrc(srcPath, cache, parsedArena);
+            assertEquals(1, countCacheFiles(dir.resolve("cache")));
+
+            // The AST is loaded after the nodes already in the arena
+            AstArena loadedArena = new AstArena();
+            loadedArena.addTree(new Nodes.ScopeNode());
+            byte[] key = cache.getKey(ByteBuffer.wrap(SRC.getBytes(StandardCharsets.UTF_8)));
+            assertTrue(cache.load(key, loadedArena));
+            assertEquals(toJson(parsedArena, 0), toJson(loadedArena, 1));
+            assertEquals(parsedArena.countNodes() + 1, loadedArena.countNodes());
+            int root = loadedArena.getRoot(1);
+            int decl = loadedArena.getFirstChild(loadedArena.getFirstChild(root));
+            assertEquals("a", loadedArena.getTok(decl).getValue());
+            assertEquals(0, loadedArena.getScopeDepth(decl));
+            assertEquals(0, loadedArena.getSlot(decl));
+            int literal = loadedArena.getNextSibling(decl);
+            assertEquals(TokenType.FLOAT_LITERAL, loadedArena.getTok(literal).getType());
+            assertEquals(5.0, loadedArena.getTok(literal).getFloatValue());
+
+            // Parsing again goes through the cache without storing anything, which is shown by replacing the stored
+            // AST with that of another source that only a cache hit can produce
+            AstArena otherArena = parseToArena("var x = 2;");
+            cache.store(key, otherArena, 0);
+            SrcParser.parseSrc(srcPath, cache, loadedArena);
+            assertEquals(toJson(otherArena, 0), toJson(loadedArena, 2));
+            assertEquals(1, countCacheFiles(dir.resolve("cache")));
+
+            // A different content is not in the cache
+            byte[] otherKey = cache.getKey(ByteBuffer.wrap((SRC + ";").getBytes(StandardCharsets.UTF_8)));
+            assertFalse(cache.load(otherKey, loadedArena));
+            assertEquals(3, loadedArena.countRoots());
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    void testCorrupt(@TempDir Path dir) {
+        try {
+            AstCache cache = new AstCache(dir);
+            AstArena parsedArena = parseToArena(SRC);
+            byte[] key = cache.getKey(ByteBuffer.wrap(SRC.getBytes(StandardCharsets.UTF_8)));
+            cache.store(key, parsedArena, 0);
+            Path path;
+            try (Stream<Path> files = Files.list(dir)) {
+                path = files.findFirst().orElseThrow();
+            }
+            byte[] data = Files.readAllBytes(path);
+            // The serialized trees are at the end of the file, after the header
+            int body = data.length - parsedArena.serialize(0).remaining();
+            int node = body + 4 * 4;
+
+            // An unknown node type, a child before its parent, a data type and a token past the end of their tables
+            int[] offsets = {node, node + 2 + 4 + 4, node + 2 + 4, node + 2};
+            byte[] values = {(byte) 0x7F, 0, 0x7F, 0x7F};
+            for (int i = 0; i < offsets.length; ++i) {
+                byte[] corruptData = data.clone();
+                corruptData[offsets[i]] = values[i];
+                if (values[i] == 0) {
+                    // Make the whole index 0 so that the first node is its own child
+                    Arrays.fill(corruptData, offsets[i], offsets[i] + 4, (byte) 0);
+                }
+                Files.write(path, corruptData);
+                AstArena arena = new AstArena();
+                assertFalse(cache.load(key, arena));
+                assertEquals(0, arena.countNodes());
+                assertEquals(0, arena.countRoots());
+            }
+
+            // The intact file is loaded
+            Files.write(path, data);
+            AstArena arena = new AstArena();
+            assertTrue(cache.load(key, arena));
+            assertEquals(toJson(parsedArena, 0), toJson(arena, 0));
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
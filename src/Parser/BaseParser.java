@@ -12,10 +12,11 @@ import java.io.IOException;
 public abstract class BaseParser {
     protected final Lexer lexer;
     protected final OperatorTable opTable = OperatorTable.getInstance();
-    protected final TypeTable typeTable = TypeTable.getInstance();
+    protected final TypeTable typeTable;
 
     public BaseParser(Lexer lexer) {
         this.lexer = lexer;
+        this.typeTable = lexer.getTypeTable();
     }
 
     /**
@@ -27,11 +28,9 @@ public abstract class BaseParser {
      * @throws IOException if there is an IO exception.
      */
     protected Token parseTok(TokenType tokType) throws SyntaxError, IOException {
-        Token tok = lexer.lookahead();
-        if (tok.getType() != tokType) {
+        if (lexer.peekType() != tokType) {
             return null;
         }
-        lexer.consume();
-        return tok;
+        return lexer.consume();
     }
 }
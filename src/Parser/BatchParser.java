@@ -0,0 +1,307 @@
+package Parser;
+
+import Exceptions.SyntaxError;
+import Lexer.Lexer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+public class BatchParser {
+    // Extension of the output files, which are named after their source files
+    public final static String OUT_EXT = ".ast";
+    private final static long MAX_IN_FLIGHT_BYTES = 256L << 20;
+    // The memory bound is counted in KiB so that it fits in the permits of a semaphore
+    private final static int PERMIT_SHIFT = 10;
+    private final int numThreads;
+    private final int maxPermits;
+
+    public BatchParser() {
+        this(Runtime.getRuntime().availableProcessors(), MAX_IN_FLIGHT_BYTES);
+    }
+
+    /**
+     * Creates a driver that parses many source files concurrently.
+     *
+     * @param numThreads       the number of files parsed at the same time.
+     * @param maxInFlightBytes the maximum total size of the files being parsed at the same time, a larger file is
+     *                         parsed alone.
+     */
+    public BatchParser(int numThreads, long maxInFlightBytes) {
+        this.numThreads = numThreads;
+        this.maxPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxInFlightBytes >> PERMIT_SHIFT));
+    }
+
+    /**
+     * A source file and the file its AST is written to.
+     */
+    public static class Job {
+        private final Path srcPath;
+        private final Path outPath;
+
+        public Job(Path srcPath, Path outPath) {
+            this.srcPath = srcPath;
+            this.outPath = outPath;
+        }
+
+        public Path getSrcPath() {
+            return srcPath;
+        }
+
+        public Path getOutPath() {
+            return outPath;
+        }
+    }
+
+    /**
+     * A source file that could not be parsed, the error can be any throwable, such as a stack overflow caused by deeply
+     * nested blocks.
+     */
+    public static class Failure {
+        private final Path srcPath;
+        private final Throwable error;
+
+        Failure(Path srcPath, Throwable error) {
+            this.srcPath = srcPath;
+            this.error = error;
+        }
+
+        public Path getSrcPath() {
+            return srcPath;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return srcPath + ": " + (error.getMessage() == null ? error.toString() : error.getMessage());
+        }
+    }
+
+    /**
+     * The outcome of a batch. The counts and the throughput only cover the files that have been parsed, the files that
+     * failed are counted separately.
+     */
+    public static class Report {
+        private final int numParsedFiles;
+        private final long numParsedBytes;
+        private final long elapsedNanos;
+        private final List<Failure> failures;
+
+        Report(int numParsedFiles, long numParsedBytes, long elapsedNanos, List<Failure> failures) {
+            this.numParsedFiles = numParsedFiles;
+            this.numParsedBytes = numParsedBytes;
+            this.elapsedNanos = elapsedNanos;
+            this.failures = failures;
+        }
+
+        public int getNumParsedFiles() {
+            return numParsedFiles;
+        }
+
+        public long getNumParsedBytes() {
+            return numParsedBytes;
+        }
+
+        public int getNumFailedFiles() {
+            return failures.size();
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public List<Failure> getFailures() {
+            return failures;
+        }
+
+        public double getFilesPerSec() {
+            return numParsedFiles / Math.max(elapsedNanos / 1e9, 1e-9);
+        }
+
+        public double getMbPerSec() {
+            return numParsedBytes / (double) (1 << 20) / Math.max(elapsedNanos / 1e9, 1e-9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Parsed %d files (%.2f MB) in %.3f s: %.1f files/s, %.2f MB/s, %d failed",
+                    numParsedFiles, numParsedBytes / (double) (1 << 20), elapsedNanos / 1e9, getFilesPerSec(),
+                    getMbPerSec(), getNumFailedFiles());
+        }
+    }
+
+    /**
+     * Collects the source files given as directories, files or glob patterns. A directory stands for all the regular
+     * files under it. The output of every source is placed in the output directory at the source's path relative to
+     * its directory, or relative to the part of its glob pattern before the first wildcard. The output of a file given
+     * by itself is placed at the file's path if it is relative and inside the working directory, otherwise, it is
+     * placed at the file's name.
+     *
+     * @param srcs   the directories, files and glob patterns.
+     * @param outDir the output directory.
+     * @return the jobs in the order of the arguments, sorted by path within each argument.
+     * @throws IOException              if a directory cannot be read.
+     * @throws IllegalArgumentException if the outputs of two different sources would be at the same path.
+     */
+    public static List<Job> collectJobs(List<String> srcs, Path outDir) throws IOException, IllegalArgumentException {
+        List<Job> jobs = new ArrayList<>();
+        for (String src : srcs) {
+            int wildcard = indexOfWildcard(src);
+            Path baseDir;
+            PathMatcher matcher;
+            if (wildcard >= 0) {
+                int sep = Math.max(src.lastIndexOf('/', wildcard), src.lastIndexOf('\\', wildcard));
+                baseDir = Path.of(sep < 0 ? "." : src.substring(0, sep + 1));
+                matcher = FileSystems.getDefault().getPathMatcher("glob:" + src.substring(sep + 1));
+            } else if (Files.isDirectory(Path.of(src))) {
+                baseDir = Path.of(src);
+                matcher = path -> true;
+            } else {
+                Path srcPath = Path.of(src);
+                Path relPath = srcPath.normalize();
+                if (relPath.isAbsolute() || relPath.startsWith("..")) {
+                    relPath = srcPath.getFileName();
+                }
+                jobs.add(new Job(srcPath, outDir.resolve(relPath + OUT_EXT)));
+                continue;
+            }
+            List<Path> paths;
+            try (Stream<Path> files = Files.walk(baseDir)) {
+                paths = files.filter(Files::isRegularFile)
+                        .filter(path -> matcher.matches(baseDir.relativize(path)))
+                        .sorted()
+                        .toList();
+            }
+            for (Path path : paths) {
+                jobs.add(new Job(path, outDir.resolve(baseDir.relativize(path) + OUT_EXT)));
+            }
+        }
+        checkOutPaths(jobs);
+        return jobs;
+    }
+
+    /**
+     * Checks that no two sources are written to the same output, which would be overwritten by whichever is parsed
+     * last. A source given more than once is only parsed once.
+     *
+     * @param jobs the jobs, the repeated sources are removed from them.
+     * @throws IllegalArgumentException if two different sources have the same output.
+     */
+    private static void checkOutPaths(List<Job> jobs) throws IllegalArgumentException {
+        HashMap<Path, Job> outJobs = new HashMap<>();
+        jobs.removeIf(job -> {
+            Job otherJob = outJobs.putIfAbsent(job.getOutPath().toAbsolutePath().normalize(), job);
+            if (otherJob == null) {
+                return false;
+            }
+            if (otherJob.getSrcPath().toAbsolutePath().normalize()
+                    .equals(job.getSrcPath().toAbsolutePath().normalize())) {
+                return true;
+            }
+            throw new IllegalArgumentException("Sources " + otherJob.getSrcPath() + " and " + job.getSrcPath() +
+                    " would both be written to " + job.getOutPath());
+        });
+    }
+
+    private static int indexOfWildcard(String src) {
+        for (int i = 0; i < src.length(); ++i) {
+            char c = src.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses every source file with its own lexer and parser and writes its AST the same way as SrcParser.parseSrc().
+     * A file is only started once the total size of the files in flight leaves room for it, so memory stays bounded
+     * however many files are queued. A file that cannot be parsed is reported and its partial output is removed, the
+     * rest of the batch carries on.
+     *
+     * @param jobs the source files and their outputs.
+     * @return the report of the batch, the failures are in the order of the jobs.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the batch.
+     */
+    public Report parseAll(List<Job> jobs) throws InterruptedException {
+        // Each job only sets its own slot, the slots are read once the executor has terminated
+        Failure[] failures = new Failure[jobs.size()];
+        // Only the files that have been parsed are counted so that both throughputs are over the same files
+        AtomicInteger numParsedFiles = new AtomicInteger();
+        AtomicLong numParsedBytes = new AtomicLong();
+        Semaphore inFlight = new Semaphore(maxPermits);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        long startTime = System.nanoTime();
+
+        try {
+            for (int i = 0; i < jobs.size(); ++i) {
+                Job job = jobs.get(i);
+                int jobIndex = i;
+                long size;
+                try {
+                    size = Files.size(job.getSrcPath());
+                } catch (IOException e) {
+                    failures[jobIndex] = new Failure(job.getSrcPath(), e);
+                    continue;
+                }
+                int permits = (int) Math.min(maxPermits, Math.max(1, size >> PERMIT_SHIFT));
+                inFlight.acquire(permits);
+                executor.execute(() -> {
+                    try {
+                        parseFile(job);
+                        numParsedFiles.incrementAndGet();
+                        numParsedBytes.addAndGet(size);
+                    } catch (Throwable e) {
+                        // Errors are recorded too, otherwise the file would be counted as parsed
+                        failures[jobIndex] = new Failure(job.getSrcPath(), e);
+                    } finally {
+                        inFlight.release(permits);
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        long elapsedNanos = System.nanoTime() - startTime;
+        List<Failure> failureList = new ArrayList<>();
+        for (Failure failure : failures) {
+            if (failure != null) {
+                failureList.add(failure);
+            }
+        }
+        return new Report(numParsedFiles.get(), numParsedBytes.get(), elapsedNanos, failureList);
+    }
+
+    private static void parseFile(Job job) throws SyntaxError, IOException {
+        Path parentDir = job.getOutPath().getParent();
+        if (parentDir != null) {
+            Files.createDirectories(parentDir);
+        }
+        try (FileChannel channel = FileChannel.open(job.getSrcPath());
+             BufferedWriter writer = Files.newBufferedWriter(job.getOutPath())) {
+            new SrcParser(new Lexer(channel), writer).writeSrc();
+        } catch (Throwable e) {
+            Files.deleteIfExists(job.getOutPath());
+            throw e;
+        }
+    }
+}
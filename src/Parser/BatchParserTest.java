@@ -0,0 +1,79 @@
+package Parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchParserTest {
+    private String parse(String src) {
+        StringWriter out = new StringWriter();
+        new SrcParser(new BufferedReader(new StringReader(src)), new BufferedWriter(out)).parseSrc();
+        return out.toString();
+    }
+
+    @Test
+    void testParseAll(@TempDir Path dir) {
+        try {
+            Path srcDir = Files.createDirectories(dir.resolve("src/sub"));
+            Files.writeString(dir.resolve("src/a.txt"), "var a = 1;\n{ var b = a; }");
+            Files.writeString(srcDir.resolve("b.txt"), "var a = 1.5;\nvar a = 2;");
+            Files.writeString(srcDir.resolve("c.txt"), "let c = true;");
+            Files.writeString(srcDir.resolve("c.md"), "not a source");
+            Path outDir = dir.resolve("out");
+
+            List<BatchParser.Job> jobs = BatchParser.collectJobs(List.of(dir.resolve("src") + "/**.txt"), outDir);
+            assertEquals(3, jobs.size());
+            assertEquals(outDir.resolve("sub/c.txt.ast"), jobs.get(2).getOutPath());
+
+            // A memory bound smaller than a file still lets the files through one at a time
+            BatchParser.Report report = new BatchParser(2, 1).parseAll(jobs);
+            // The failed file is only counted as a failure
+            assertEquals(2, report.getNumParsedFiles());
+            assertEquals(Files.size(dir.resolve("src/a.txt")) + Files.size(srcDir.resolve("c.txt")),
+                    report.getNumParsedBytes());
+            assertEquals(1, report.getNumFailedFiles());
+            assertEquals(1, report.getFailures().size());
+            assertEquals(srcDir.resolve("b.txt"), report.getFailures().get(0).getSrcPath());
+            assertEquals("Cannot redeclare a variable or a constant on line 2",
+                    report.getFailures().get(0).getError().getMessage());
+            assertEquals(parse("var a = 1;\n{ var b = a; }"), Files.readString(outDir.resolve("a.txt.ast")));
+            assertEquals(parse("let c = true;"), Files.readString(outDir.resolve("sub/c.txt.ast")));
+            assertFalse(Files.exists(outDir.resolve("sub/b.txt.ast")));
+
+            // A directory stands for all of its files
+            assertEquals(3, BatchParser.collectJobs(List.of(srcDir.toString()), outDir).size());
+
+            // Files with the same name in different directories would have the same output, a file that is given
+            // twice is only parsed once
+            Files.writeString(dir.resolve("src/c.txt"), "let c = false;");
+            String file1 = srcDir.resolve("c.txt").toString();
+            String file2 = dir.resolve("src/c.txt").toString();
+            assertThrows(IllegalArgumentException.class, () -> BatchParser.collectJobs(List.of(file1, file2), outDir));
+            assertEquals(1, BatchParser.collectJobs(List.of(file1, srcDir + "/c.t*"), outDir).size());
+
+            // An error thrown while parsing, such as a stack overflow, makes the file fail
+            Path deepPath = dir.resolve("deep.txt");
+            Files.writeString(deepPath, "{".repeat(1 << 20) + "var a = 1;" + "}".repeat(1 << 20));
+            BatchParser.Job deepJob = new BatchParser.Job(deepPath, outDir.resolve("deep.txt.ast"));
+            report = new BatchParser(1, 1).parseAll(List.of(deepJob));
+            assertEquals(0, report.getNumParsedFiles());
+            assertEquals(0, report.getNumParsedBytes());
+            assertEquals(1, report.getFailures().size());
+            assertTrue(report.getFailures().get(0).getError() instanceof StackOverflowError);
+            assertFalse(Files.exists(outDir.resolve("deep.txt.ast")));
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
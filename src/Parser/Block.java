@@ -3,12 +3,59 @@ package Parser;
 import Symbols.SymbolTable;
 
 public class Block {
+    // Shared by the block and all the blocks nested in it, each nested block is a scope of the table
     private final SymbolTable symbolTable;
     private final Block parent;
 
+    /**
+     * Creates a block. A nested block opens a scope in its parent's symbol table, which must be closed before the
+     * parent's own scope and before any other block is nested in the parent.
+     *
+     * @param parent the block that surrounds the new block or null if the new block is the global scope.
+     */
     public Block(Block parent) {
         this.parent = parent;
-        this.symbolTable = new SymbolTable(parent == null ? null : parent.symbolTable);
+        if (parent == null) {
+            this.symbolTable = new SymbolTable();
+        } else {
+            this.symbolTable = parent.symbolTable;
+            symbolTable.openScope();
+        }
+    }
+
+    private Block(SymbolTable symbolTable) {
+        this.parent = null;
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * Creates a global scope whose symbol table already exists, such as a table forked from persistent globals.
+     *
+     * @param symbolTable the symbol table, no nested scope must be open in it.
+     * @return the global scope.
+     */
+    public static Block createGlobal(SymbolTable symbolTable) {
+        return new Block(symbolTable);
+    }
+
+    /**
+     * Creates a block without a parent whose symbol table is a copy of the symbols visible in this block and whose
+     * own symbols cannot be modified.
+     *
+     * @return a block that can be used as the parent scope of blocks parsed on another thread.
+     */
+    public Block snapshot() {
+        return new Block(symbolTable.snapshot());
+    }
+
+    /**
+     * Closes the scope of a nested block, which hides the symbols registered in it again. Closing a block without a
+     * parent has no effect.
+     */
+    public void close() {
+        if (parent != null) {
+            symbolTable.closeScope();
+        }
     }
 
     public SymbolTable getSymbolTable() {
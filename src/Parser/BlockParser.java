@@ -24,15 +24,19 @@ public class BlockParser extends BaseParser {
      * @throws IOException if there is an IO exception.
      */
     public ScopeNode parseBlock(Block scope) throws SyntaxError, IOException {
-        Block newScope = new Block(scope);
-
         // Try parsing left brackets
         if (parseTok(TokenType.LBRACKETS) == null) {
             return null;
         }
 
-        // Try parsing code in the scope
-        ScopeNode root = scopeParser.parseScope(newScope);
+        // Try parsing code in the scope, the scope is closed however the block ends
+        Block newScope = new Block(scope);
+        ScopeNode root;
+        try {
+            root = scopeParser.parseScope(newScope);
+        } finally {
+            newScope.close();
+        }
 
         // Try parsing right brackets
         if (parseTok(TokenType.RBRACKETS) == null) {
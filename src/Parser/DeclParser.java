@@ -13,6 +13,8 @@ import java.io.IOException;
 
 public class DeclParser extends BaseParser {
     private final ExprParser exprParser;
+    // The symbol registered for the lhs of the declaration being parsed, kept so that it is not looked up again
+    private VarInfo declVarInfo;
 
     public DeclParser(Lexer lexer, ExprParser exprParser) {
         super(lexer);
@@ -30,7 +32,7 @@ public class DeclParser extends BaseParser {
     public DataTypeNode parseDecl(Block scope) throws SyntaxError, IOException {
         DataTypeNode lhs = parseLhs(scope);
         DataTypeNode root = parseAssignment(lhs, scope);
-        checkTypeCompat(root, scope);
+        checkTypeCompat(root);
         return root;
     }
 
@@ -66,18 +68,20 @@ public class DeclParser extends BaseParser {
         TypeInfo dataType = parseType();
 
         // Check if it is a new variable or constant
+        declVarInfo = null;
         SymbolTable symbolTable = scope.getSymbolTable();
-        String id = idTok.getValue();
-        if (symbolTable.getSymbol(id) != null) {
+        int symbolId = idTok.getSymbolId();
+        if (symbolTable.getSymbol(symbolId) != null) {
             // If the variable or constant has been declared, throw an exception
             throw new SyntaxError("Cannot redeclare a variable or a constant", lexer.getCurrLine());
         } else {
             // Create a new variable or constant if it does not exist
-            VarInfo varInfo = new VarInfo(id, dataType, mutable);
-            symbolTable.register(varInfo);
+            declVarInfo = new VarInfo(idTok.getValue(), symbolId, dataType, mutable);
+            symbolTable.register(declVarInfo);
         }
 
-        return new VarNode(idTok, NodeType.DECL, dataType, mutable);
+        return new VarNode(idTok, NodeType.DECL, dataType, mutable, declVarInfo.getScopeDepth(),
+                declVarInfo.getSlot());
     }
 
     /**
@@ -144,11 +148,10 @@ public class DeclParser extends BaseParser {
     /**
      * Checks type compatibility between left-hand side and right-hand side of the declaration.
      *
-     * @param root  the declaration's AST root.
-     * @param scope the current scope surrounding the declaration.
+     * @param root the declaration's AST root.
      * @throws SyntaxError if there is a syntax error.
      */
-    private void checkTypeCompat(DataTypeNode root, Block scope) throws SyntaxError {
+    private void checkTypeCompat(DataTypeNode root) throws SyntaxError {
         if (root == null || root.getType() != NodeType.DEF) {
             // If lhs is not a declaration, the statement must be an expression
             return;
@@ -169,10 +172,7 @@ public class DeclParser extends BaseParser {
                 // If the lhs's data type is null, we assign rhs's data type directly to lhs
                 lhs.setDataType(rhsDataType);
                 // Set the variable or constant's data type in the symbol table
-                SymbolTable symbolTable = scope.getSymbolTable();
-                String id = lhs.getTok().getValue();
-                VarInfo varInfo = (VarInfo) symbolTable.getSymbol(id);
-                varInfo.setDataType(rhsDataType);
+                declVarInfo.setDataType(rhsDataType);
             }
         } else if (lhsDataType != rhsDataType) {
             if (rhsDataType != null) {
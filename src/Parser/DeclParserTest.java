@@ -2,12 +2,16 @@ package Parser;
 
 import Exceptions.SyntaxError;
 import Lexer.Lexer;
+import Nodes.DataTypeNode;
 import Nodes.Node;
+import Types.TypeTable;
 import org.junit.jupiter.api.Test;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -46,4 +50,26 @@ class DeclParserTest {
                         }""";
         checkValidDecl(input, expected);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testExtendedType() {
+        try {
+            // Extending the table does not affect the built-in table or other parsers
+            TypeTable typeTable = TypeTable.getInstance().extend("char", 1);
+            assertNull(TypeTable.getInstance().getType("char"));
+            assertEquals(3, typeTable.getType("char").getOrdinal());
+            assertThrows(IllegalArgumentException.class, () -> typeTable.extend("int", 4));
+
+            Lexer lexer = new Lexer(ByteBuffer.wrap("var c: char;".getBytes(StandardCharsets.UTF_8)), typeTable);
+            DeclParser declParser = new DeclParser(lexer, new ExprParser(lexer));
+            Node root = declParser.parseDecl(new Block(null));
+            assertSame(typeTable.getType("char"), ((DataTypeNode) root).getDataType());
+
+            SyntaxError e = assertThrows(SyntaxError.class, () -> parseDecl("var c: char;"));
+            assertEquals("Expected a type after ':' on line 1", e.getMessage());
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
@@ -3,17 +3,20 @@ package Parser;
 import Exceptions.SyntaxError;
 import Lexer.Lexer;
 import Nodes.*;
-import Operators.BinaryOperatorCompat;
-import Operators.OperatorCompat;
-import Operators.UnaryOperatorCompat;
+import Operators.OperatorTable;
 import Symbols.VarInfo;
 import Tokens.Token;
 import Tokens.TokenType;
 import Types.TypeInfo;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 
 public class ExprParser extends BaseParser {
+    // Prefix operators that wait for their operand, the operators of every frame are above those of the frames
+    // below it
+    private final ArrayList<UnaryNode> prefixOps = new ArrayList<>();
 
     public ExprParser(Lexer lexer) {
         super(lexer);
@@ -22,7 +25,8 @@ public class ExprParser extends BaseParser {
     // Parse general expressions
 
     /**
-     * Parses an expression and analyzes its semantics in a scope.
+     * Parses an expression and analyzes its semantics in a scope. The data types are inferred bottom-up as the nodes
+     * are built so that the expression is only visited once.
      *
      * @param scope the currently surrounding scope.
      * @return an AST node if an expression is parsed successfully, otherwise, null is returned.
@@ -30,26 +34,12 @@ public class ExprParser extends BaseParser {
      * @throws IOException if there is an IO exception.
      */
     public DataTypeNode parseExpr(Block scope) throws SyntaxError, IOException {
-        DataTypeNode root = parseExpr(scope, false);
+        DataTypeNode root = parseInfixExpr(scope);
         // Consume ';'
         parseTok(TokenType.SEMICOLON);
-        checkTypeCompat(root);
         return root;
     }
 
-    /**
-     * Parses an expression in a scope by indicating if it is inside a pair of parentheses.
-     *
-     * @param scope   the currently surrounding scope.
-     * @param inParen true if the expression is inside parentheses and false otherwise.
-     * @return an AST node if an expression is parsed successfully, otherwise, null is returned.
-     * @throws SyntaxError if there is a syntax error.
-     * @throws IOException if there is an IO exception.
-     */
-    private DataTypeNode parseExpr(Block scope, boolean inParen) throws SyntaxError, IOException {
-        return parseInfixExpr(scope, inParen);
-    }
-
     // Helper and utility methods
 
     /**
@@ -88,28 +78,6 @@ public class ExprParser extends BaseParser {
 
     // Primary expressions
 
-    /**
-     * Parses a primary expression.
-     * Grammar:
-     * primary-expression: identifier | literal-expression | parenthesized-expression
-     *
-     * @param scope the currently surrounding scope.
-     * @return an AST node associated with the primary expression.
-     * @throws SyntaxError if there is a syntax error.
-     * @throws IOException if there is an IO exception.
-     */
-    private DataTypeNode parsePrimaryExpr(Block scope) throws SyntaxError, IOException {
-        DataTypeNode node = parseId(scope);
-        if (node != null) {
-            return node;
-        }
-        node = parseLiteral();
-        if (node != null) {
-            return node;
-        }
-        return parseParenExpr(scope);
-    }
-
     /**
      * Parses an ID token.
      *
@@ -124,16 +92,15 @@ public class ExprParser extends BaseParser {
             // If the token is not an ID, return
             return null;
         }
-        String id = tok.getValue();
-        VarInfo varInfo = (VarInfo) scope.getSymbolTable().getSymbol(id);
+        VarInfo varInfo = (VarInfo) scope.getSymbolTable().getSymbol(tok.getSymbolId());
         if (varInfo == null) {
             // If the ID is not found(not valid), throw an exception
-            throw new SyntaxError("Invalid ID '" + id + "'", lexer.getCurrLine());
+            throw new SyntaxError("Invalid ID '" + tok.getValue() + "'", lexer.getCurrLine());
         }
         lexer.consume();
         TypeInfo dataType = varInfo.getDataType();
         boolean mutable = varInfo.isMutable();
-        return new VarNode(tok, NodeType.TERMINAL, dataType, mutable);
+        return new VarNode(tok, NodeType.TERMINAL, dataType, mutable, varInfo.getScopeDepth(), varInfo.getSlot());
     }
 
     /**
@@ -155,272 +122,294 @@ public class ExprParser extends BaseParser {
         return new DataTypeNode(tok, NodeType.TERMINAL, dataType);
     }
 
-    /**
-     * Parses a parenthesized expression.
-     * Grammar:
-     * parenthesized-expression: '(' expression ')'
-     *
-     * @param scope the currently surrounding scope.
-     * @return an AST node associated with the expression inside the parentheses if successful and null otherwise.
-     * @throws SyntaxError if there is a syntax error.
-     * @throws IOException if there is an IO exception.
-     */
-    private DataTypeNode parseParenExpr(Block scope) throws SyntaxError, IOException {
-        if (parseTok(TokenType.LPAREN) == null) {
-            return null;
-        }
-        DataTypeNode exprNode = parseExpr(scope, true);
-        if (parseTok(TokenType.RPAREN) == null) {
-            throw new SyntaxError("Missing ')'", lexer.getCurrLine());
-        }
-        return exprNode;
-    }
-
-    // Prefix expression
+    // Prefix and postfix expressions
 
     /**
-     * Parses a prefix expression.
+     * Parses the operand at the start of an infix expression, which is a prefix expression, and stores it in the
+     * expression's frame. If the operand's primary expression is parenthesized, only the prefix operators and '(' are
+     * consumed and the parenthesized expression is left to be parsed in a new frame.
      * Grammar:
      * prefix-expression: prefix-operator* postfix-expression
+     * postfix-expression: primary-expression postfix-operator
+     * primary-expression: identifier | literal-expression | parenthesized-expression
+     * parenthesized-expression: '(' expression ')'
      *
      * @param scope the currently surrounding scope.
-     * @return an AST node if the prefix expression is parsed successfully, otherwise, return null.
+     * @param frame the frame of the infix expression.
+     * @return true if the operand has been parsed and false if a parenthesized expression follows.
      * @throws SyntaxError if there is a syntax error.
      * @throws IOException if there is an IO exception.
      */
-    private DataTypeNode parsePrefixExpr(Block scope) throws SyntaxError, IOException {
-        UnaryNode root = parsePrefixOp();
-
-        // There can be zero or many prefix operators
-        UnaryNode parentOpNode = root;
-        UnaryNode childOpNode;
-        if (parentOpNode != null) {
-            while ((childOpNode = parsePrefixOp()) != null) {
-                parentOpNode.setChild(childOpNode);
-                parentOpNode = childOpNode;
-            }
+    private boolean parseOperand(Block scope, InfixFrame frame) throws SyntaxError, IOException {
+        // There can be zero or many prefix operators, they are linked once their operand is known
+        frame.prefixStart = prefixOps.size();
+        UnaryNode prefixOpNode;
+        while ((prefixOpNode = parsePrefixOp()) != null) {
+            prefixOps.add(prefixOpNode);
         }
 
-        DataTypeNode postfixExprNode = parsePostfixExpr(scope);
-        if (parentOpNode == null) {
-            // If there are no prefix operators, the root of the tree is the postfix expression
-            // Note that the postfix expression does or does not exist
-            return postfixExprNode;
+        DataTypeNode primaryExprNode = parseId(scope);
+        if (primaryExprNode == null) {
+            primaryExprNode = parseLiteral();
         }
-        if (postfixExprNode == null) {
-            // If there is at least one prefix operator but no postfix expression,
-            // throw a syntax error
-            throw new SyntaxError("Expected an expression following the prefix operator",
-                    lexer.getCurrLine());
+        if (primaryExprNode == null && parseTok(TokenType.LPAREN) != null) {
+            return false;
         }
-        parentOpNode.setChild(postfixExprNode);
-        return root;
+        finishOperand(frame, primaryExprNode);
+        return true;
     }
 
-    // Postfix expressions
-
     /**
-     * Parses a postfix expression.
-     * Grammar:
-     * postfix-expression: primary-expression postfix-operator
+     * Applies the postfix operator and the pending prefix operators of a frame to a primary expression, infers their
+     * data types and stores the result as the frame's left operand.
      *
-     * @param scope the currently surrounding scope.
-     * @return an AST node if the postfix expression is parsed successfully, otherwise, return null.
+     * @param frame           the frame of the infix expression.
+     * @param primaryExprNode the AST node of the primary expression, null if there is none.
      * @throws SyntaxError if there is a syntax error.
      * @throws IOException if there is an IO exception.
      */
-    private DataTypeNode parsePostfixExpr(Block scope) throws SyntaxError, IOException {
-        DataTypeNode primaryExprNode = parsePrimaryExpr(scope);
-        if (primaryExprNode == null) {
-            return null;
+    private void finishOperand(InfixFrame frame, DataTypeNode primaryExprNode) throws SyntaxError, IOException {
+        DataTypeNode operandNode = primaryExprNode;
+        if (primaryExprNode != null) {
+            UnaryNode postfixOpNode = parsePostfixOp();
+            if (postfixOpNode != null) {
+                postfixOpNode.setChild(primaryExprNode);
+                inferDataType(postfixOpNode);
+                operandNode = postfixOpNode;
+            }
         }
-        UnaryNode postfixOpNode = parsePostfixOp();
-        if (postfixOpNode == null) {
-            return primaryExprNode;
+
+        int prefixStart = frame.prefixStart;
+        if (prefixOps.size() > prefixStart) {
+            if (operandNode == null) {
+                // If there is at least one prefix operator but no postfix expression,
+                // throw a syntax error
+                throw new SyntaxError("Expected an expression following the prefix operator",
+                        lexer.getCurrLine());
+            }
+            // Apply the prefix operators from the innermost one outwards
+            for (int i = prefixOps.size() - 1; i >= prefixStart; --i) {
+                UnaryNode prefixOpNode = prefixOps.remove(i);
+                prefixOpNode.setChild(operandNode);
+                inferDataType(prefixOpNode);
+                operandNode = prefixOpNode;
+            }
         }
-        postfixOpNode.setChild(primaryExprNode);
-        return postfixOpNode;
+        // Note that the operand does or does not exist
+        frame.currLeft = operandNode;
     }
 
     // Infix expressions
 
     /**
-     * Parses an infix expression.
+     * Parses an infix expression using Pratt Parsing. Instead of recursing for every operator's right operand and every
+     * parenthesized expression, the parser keeps a stack of frames so that the call stack does not grow with the
+     * length of the expression.
      * Grammar:
      * infix-expression: prefix-expression infix-operator infix-expression
      *
-     * @param scope   the currently surrounding scope.
-     * @param inParen true if the expression is inside parentheses and false otherwise.
+     * @param scope the currently surrounding scope.
      * @return an AST node if an infix expression is parsed successfully, otherwise, null is returned.
      * @throws SyntaxError if there is a syntax error.
      * @throws IOException if there is an IO exception.
      */
-    private DataTypeNode parseInfixExpr(Block scope, boolean inParen) throws SyntaxError, IOException {
-        return recurParseInfixExpr(scope, null, inParen);
+    private DataTypeNode parseInfixExpr(Block scope) throws SyntaxError, IOException {
+        ArrayDeque<InfixFrame> frames = new ArrayDeque<>();
+        // Drop the prefix operators left over by an expression that failed to parse
+        prefixOps.clear();
+        InfixFrame frame = new InfixFrame(null, 0, false);
+        frames.push(frame);
+        boolean needsOperand = true;
+
+        while (true) {
+            if (needsOperand && !parseOperand(scope, frame)) {
+                // Parse the expression inside the parentheses in a new frame
+                frame = new InfixFrame(null, 0, true);
+                frames.push(frame);
+                continue;
+            }
+            if (parseInfixOp(scope, frame)) {
+                // Parse the operator's right operand in a new frame
+                frame = new InfixFrame(frame.pendingOp, frame.pendingOpInfo, frame.inParen);
+                frames.push(frame);
+                needsOperand = true;
+                continue;
+            }
+
+            // The frame's expression ends, pass it to the frame below
+            DataTypeNode expr = frame.currLeft;
+            frames.pop();
+            frame = frames.peek();
+            if (frame == null) {
+                return expr;
+            }
+            needsOperand = false;
+            if (frame.pendingOp != null) {
+                // The expression is the right operand of the pending operator
+                BinaryNode newLeft = frame.pendingOp;
+                newLeft.setLeft(frame.currLeft);
+                newLeft.setRight(expr);
+                inferDataType(newLeft);
+                frame.currLeft = newLeft;
+                frame.pendingOp = null;
+            } else {
+                // The expression is inside the parentheses
+                if (parseTok(TokenType.RPAREN) == null) {
+                    throw new SyntaxError("Missing ')'", lexer.getCurrLine());
+                }
+                finishOperand(frame, expr);
+            }
+        }
     }
 
     /**
-     * Recursively parses an infix expression using Pratt Parsing.
+     * Looks at the token after the left operand of a frame and either consumes it as an infix operator whose right
+     * operand is parsed next, or ends the frame's expression.
      *
-     * @param scope   the currently surrounding scope.
-     * @param prevOp  the previous left operator node.
-     * @param inParen true if the expression is inside parentheses and false otherwise.
-     * @return an AST node if an infix expression is parsed successfully, otherwise, null is returned.
+     * @param scope the currently surrounding scope.
+     * @param frame the frame of the infix expression.
+     * @return true if an operator has been consumed and stored as the frame's pending operator, false if the
+     * expression ends and is stored as the frame's left operand.
      * @throws SyntaxError if there is a syntax error.
      * @throws IOException if there is an IO exception.
      */
-    private DataTypeNode recurParseInfixExpr(Block scope, Node prevOp, boolean inParen)
-            throws SyntaxError, IOException {
-        // First, fetch the left operand
-        DataTypeNode currLeft = parsePrefixExpr(scope);
-        Token opTok;
-        TokenType opType;
-        DataTypeNode right;
-        BinaryNode newLeft;
-
-        while (true) {
-            opTok = lexer.lookahead();
-            opType = opTok.getType();
-
-            if (opType == TokenType.EOF) {
-                if (prevOp != null) {
-                    if (currLeft == null) {
-                        // Missing an operand after an operator
-                        throw new SyntaxError("Expected an operand after '" + prevOp.getTok().getValue() + "'",
-                                lexer.getCurrLine());
-                    } else if (inParen) {
-                        // The expression ends without ')'
-                        throw new SyntaxError("Missing ')'", lexer.getCurrLine());
-                    } else {
-                        // An operand exists but the expression ends without ';'
-                        throw new SyntaxError("Missing ';'", lexer.getCurrLine());
-                    }
+    private boolean parseInfixOp(Block scope, InfixFrame frame) throws SyntaxError, IOException {
+        Node prevOp = frame.prevOp;
+        boolean inParen = frame.inParen;
+        DataTypeNode currLeft = frame.currLeft;
+        Token opTok = lexer.lookahead();
+        TokenType opType = opTok.getType();
+
+        if (opType == TokenType.EOF) {
+            if (prevOp != null) {
+                if (currLeft == null) {
+                    // Missing an operand after an operator
+                    throw new SyntaxError("Expected an operand after '" + prevOp.getTok().getValue() + "'",
+                            lexer.getCurrLine());
+                } else if (inParen) {
+                    // The expression ends without ')'
+                    throw new SyntaxError("Missing ')'", lexer.getCurrLine());
                 } else {
-                    if (currLeft == null) {
-                        // It can be an empty line or other type of statement
-                        return null;
-                    } else if (inParen) {
-                        // The expression ends without ')'
-                        throw new SyntaxError("Missing ')'", lexer.getCurrLine());
-                    } else {
-                        // An operand exists but the expression ends without ';'
-                        throw new SyntaxError("Missing ';'", lexer.getCurrLine());
-                    }
+                    // An operand exists but the expression ends without ';'
+                    throw new SyntaxError("Missing ';'", lexer.getCurrLine());
                 }
-            }
-
-            if (opType == TokenType.SEMICOLON) {
-                if (prevOp != null) {
-                    if (currLeft == null) {
-                        // Missing an operand after an operator
-                        throw new SyntaxError("Expected an operand after '" + prevOp.getTok().getValue() + "'",
-                                lexer.getCurrLine());
-                    } else if (inParen) {
-                        // The expression ends without ')'
-                        throw new SyntaxError("Missing ')'", lexer.getCurrLine());
-                    } else {
-                        // Deal with the case '... operator operand;'
-                        return currLeft;
-                    }
+            } else {
+                if (currLeft == null) {
+                    // It can be an empty line or other type of statement
+                    return false;
+                } else if (inParen) {
+                    // The expression ends without ')'
+                    throw new SyntaxError("Missing ')'", lexer.getCurrLine());
                 } else {
-                    if (currLeft != null) {
-                        // Deal with the case 'operand;'
-                        return currLeft;
-                    } else if (inParen) {
-                        // The expression ends without ')'
-                        throw new SyntaxError("Missing ')'", lexer.getCurrLine());
-                    } else {
-                        // Return a node representing an empty statement(sentinel), or the case ';'
-                        return new DataTypeNode(null, NodeType.EMPTY, null);
-                    }
+                    // An operand exists but the expression ends without ';'
+                    throw new SyntaxError("Missing ';'", lexer.getCurrLine());
                 }
             }
+        }
 
-            if (opType == TokenType.RPAREN) {
-                // If the next token is ')', make sure the expression is in parentheses
-                if (inParen) {
-                    return currLeft;
+        if (opType == TokenType.SEMICOLON) {
+            if (prevOp != null) {
+                if (currLeft == null) {
+                    // Missing an operand after an operator
+                    throw new SyntaxError("Expected an operand after '" + prevOp.getTok().getValue() + "'",
+                            lexer.getCurrLine());
+                } else if (inParen) {
+                    // The expression ends without ')'
+                    throw new SyntaxError("Missing ')'", lexer.getCurrLine());
                 } else {
-                    throw new SyntaxError("Unexpected ')'", lexer.getCurrLine());
+                    // Deal with the case '... operator operand;'
+                    return false;
                 }
-            }
-
-            if (opTable.getId(opTok.getValue()) == null || !opTable.isInfix(opType)) {
-                if (currLeft == null) {
-                    // Undetected operator with no preceding operand
-                    return null;
+            } else {
+                if (currLeft != null) {
+                    // Deal with the case 'operand;'
+                    return false;
+                } else if (inParen) {
+                    // The expression ends without ')'
+                    throw new SyntaxError("Missing ')'", lexer.getCurrLine());
                 } else {
-                    // If the next operator is neither valid nor infix and there is an operand, throw an exception
-                    throw new SyntaxError("Expected an infix operator after '" + currLeft.getTok().getValue() + "'",
-                            lexer.getCurrLine());
+                    // Return a node representing an empty statement(sentinel), or the case ';'
+                    frame.currLeft = new DataTypeNode(null, NodeType.EMPTY, null);
+                    return false;
                 }
-            } else if (currLeft == null) {
-                // Missing an operand before the infix operator
-                throw new SyntaxError("Missing an operand before the operator '" + opTok.getValue() + "'",
-                        lexer.getCurrLine());
             }
+        }
 
-            // currLeft is assured to be non-null
-            if (opType == TokenType.ASSIGNMENT) {
-                if (currLeft.getTok().getType() != TokenType.ID) {
-                    throw new SyntaxError("Expected a variable before '='", lexer.getCurrLine());
-                }
+        if (opType == TokenType.RPAREN) {
+            // If the next token is ')', make sure the expression is in parentheses
+            if (inParen) {
+                return false;
+            } else {
+                throw new SyntaxError("Unexpected ')'", lexer.getCurrLine());
+            }
+        }
 
-                String id = currLeft.getTok().getValue();
-                VarInfo varInfo = (VarInfo) scope.getSymbolTable().getSymbol(id);
+        // Look up the operator's metadata once for every check below
+        int opInfo = opTable.getOpInfo(opType);
+        if (!OperatorTable.isInfix(opInfo)) {
+            if (currLeft == null) {
+                // Undetected operator with no preceding operand
+                return false;
+            } else {
+                // If the next operator is neither valid nor infix and there is an operand, throw an exception
+                throw new SyntaxError("Expected an infix operator after '" + currLeft.getTok().getValue() + "'",
+                        lexer.getCurrLine());
+            }
+        } else if (currLeft == null) {
+            // Missing an operand before the infix operator
+            throw new SyntaxError("Missing an operand before the operator '" + opTok.getValue() + "'",
+                    lexer.getCurrLine());
+        }
 
-                if (varInfo == null) {
-                    // Variable is not valid, that is, it does not exist
-                    throw new SyntaxError("Invalid variable '" + id + "'", lexer.getCurrLine());
-                } else if (!varInfo.isMutable()) {
-                    // Id is a constant so cannot be reassigned
-                    throw new SyntaxError("'" + id + "' is a constant", lexer.getCurrLine());
-                }
+        // currLeft is assured to be non-null
+        if (opType == TokenType.ASSIGNMENT) {
+            if (!(currLeft instanceof VarNode varNode) || currLeft.getTok().getType() != TokenType.ID) {
+                throw new SyntaxError("Expected a variable before '='", lexer.getCurrLine());
             }
 
-            if (prevOp != null && opTable.cmpPreced(opType, prevOp.getTok().getType()) < 0) {
-                // The current operator has lower precedence than the previous operator
-                return currLeft;
+            // The variable has been resolved when its ID was parsed so it is not looked up again
+            if (!varNode.isMutable()) {
+                // Id is a constant so cannot be reassigned
+                throw new SyntaxError("'" + varNode.getTok().getValue() + "' is a constant", lexer.getCurrLine());
             }
+        }
 
-            lexer.consume();
-            newLeft = new BinaryNode(opTok, NodeType.BINARY_OP, null);
-            right = recurParseInfixExpr(scope, newLeft, inParen);
-            newLeft.setLeft(currLeft);
-            newLeft.setRight(right);
-            currLeft = newLeft;
+        if (prevOp != null && OperatorTable.cmpPreced(opInfo, frame.prevOpInfo) < 0) {
+            // The current operator has lower precedence than the previous operator
+            return false;
         }
+
+        lexer.consume();
+        frame.pendingOp = new BinaryNode(opTok, NodeType.BINARY_OP, null);
+        frame.pendingOpInfo = opInfo;
+        return true;
     }
 
     /**
-     * Checks type compatibility between operands in the expression.
+     * Checks type compatibility between the operands of an operator whose operands have already been typed and sets
+     * the operator node's data type to that of the result. An operand or its data type can only be missing in a
+     * malformed expression, the node is then left untyped.
      *
-     * @param root the expression's AST root.
+     * @param root the operator's AST node.
      * @throws SyntaxError if there is a syntax error.
      */
-    private void checkTypeCompat(DataTypeNode root) throws SyntaxError {
-        if (root == null || root.getType() == NodeType.TERMINAL || root.getType() == NodeType.EMPTY) {
-            return;
-        }
-
+    private void inferDataType(DataTypeNode root) throws SyntaxError {
         TypeInfo resultDataType;
         Token op = root.getTok();
         TokenType opId = op.getType();
-        OperatorCompat opCompat;
 
         if (root.getType() == NodeType.UNARY_OP) {
             UnaryNode unaryNode = (UnaryNode) root;
             DataTypeNode childNode = unaryNode.getChild();
 
-            // Recursively analyze the semantics of the child node
-            checkTypeCompat(childNode);
-
             // Get the operand's data type
             TypeInfo operandDataType = childNode.getDataType();
+            if (operandDataType == null) {
+                return;
+            }
 
             // Check the result's data type after applying the operator
-            opCompat = new UnaryOperatorCompat(opId, operandDataType);
-            resultDataType = opTable.getCompatDataType(opCompat);
+            resultDataType = opTable.getCompatDataType(opId, operandDataType);
             if (resultDataType == null) {
                 throw new SyntaxError("Operator '" + op.getValue() + "' is not compatible with type '" +
                         operandDataType.getId() + "'", lexer.getCurrLine());
@@ -434,18 +423,19 @@ public class ExprParser extends BaseParser {
             BinaryNode binaryNode = (BinaryNode) root;
             DataTypeNode leftNode = binaryNode.getLeft();
             DataTypeNode rightNode = binaryNode.getRight();
-
-            // Recursively analyze the semantics of the left and right node
-            checkTypeCompat(leftNode);
-            checkTypeCompat(rightNode);
+            if (leftNode == null || rightNode == null) {
+                return;
+            }
 
             // Get the left and right node's data type
             TypeInfo leftDataType = leftNode.getDataType();
             TypeInfo rightDataType = rightNode.getDataType();
+            if (leftDataType == null || rightDataType == null) {
+                return;
+            }
 
             // Check the result's data type after applying the operator
-            opCompat = new BinaryOperatorCompat(opId, leftDataType, rightDataType);
-            resultDataType = opTable.getCompatDataType(opCompat);
+            resultDataType = opTable.getCompatDataType(opId, leftDataType, rightDataType);
             if (resultDataType == null) {
                 throw new SyntaxError("Operator '" + op.getValue() + "' is not compatible with type '" +
                         leftDataType.getId() + "' and type '" + rightDataType.getId() + "'", lexer.getCurrLine());
@@ -456,4 +446,26 @@ public class ExprParser extends BaseParser {
         }
     }
 
+    /**
+     * State of an infix expression that is being parsed, which takes the place of a call in a recursive Pratt parser.
+     */
+    private static class InfixFrame {
+        // The operator whose right operand is the frame's expression and its metadata, null if there is no such
+        // operator
+        private final BinaryNode prevOp;
+        private final int prevOpInfo;
+        private final boolean inParen;
+        private DataTypeNode currLeft;
+        // The operator that has been consumed and waits for its right operand from the frame above, and its metadata
+        private BinaryNode pendingOp;
+        private int pendingOpInfo;
+        // The index of the frame's first prefix operator that waits for its operand
+        private int prefixStart;
+
+        private InfixFrame(BinaryNode prevOp, int prevOpInfo, boolean inParen) {
+            this.prevOp = prevOp;
+            this.prevOpInfo = prevOpInfo;
+            this.inParen = inParen;
+        }
+    }
 }
@@ -78,4 +78,27 @@ class ExprParserTest {
             fail();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLongExpr() {
+        int numTerms = 50000;
+        String[] inputArr = {
+                "1" + " + 2 * 3".repeat(numTerms) + ";",
+                "(".repeat(numTerms) + "1" + ")".repeat(numTerms) + " * 2;",
+                "-".repeat(numTerms) + "1;"
+        };
+        int[] expectedOpArr = {2 * numTerms, 1, numTerms};
+
+        try {
+            for (int i = 0; i < inputArr.length; ++i) {
+                // Neither parsing, type checking nor converting to JSON recurses over the expression
+                String json = parseExpr(inputArr[i]).toJson();
+                int numOps = json.split("_OP\"", -1).length - 1;
+                assertEquals(expectedOpArr[i], numOps);
+            }
+        } catch (IOException | SyntaxError e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
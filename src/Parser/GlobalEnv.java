@@ -0,0 +1,78 @@
+package Parser;
+
+import Exceptions.SyntaxError;
+import Lexer.Lexer;
+import Symbols.PersistentSymbolMap;
+import Symbols.SymbolPool;
+import Symbols.SymbolTable;
+import Types.TypeTable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class GlobalEnv {
+    private final TypeTable typeTable;
+    // Never interned into again, the forks intern the names of their sources into their own pools
+    private final SymbolPool symbolPool;
+    private final PersistentSymbolMap globals;
+
+    private GlobalEnv(TypeTable typeTable, SymbolPool symbolPool, PersistentSymbolMap globals) {
+        this.typeTable = typeTable;
+        this.symbolPool = symbolPool;
+        this.globals = globals;
+    }
+
+    /**
+     * Creates an environment without any global symbol.
+     *
+     * @param typeTable the type table that the sources are lexed and parsed with.
+     * @return the empty environment.
+     */
+    public static GlobalEnv empty(TypeTable typeTable) {
+        return new GlobalEnv(typeTable, new SymbolPool(), PersistentSymbolMap.empty());
+    }
+
+    /**
+     * Parses a source of global declarations on top of this environment and captures its global symbols in a new
+     * environment. The new environment shares its symbols with this one, which is not modified.
+     *
+     * @param src the buffer that holds the source.
+     * @return the new environment.
+     * @throws SyntaxError if there is a syntax error.
+     * @throws IOException if there is an IO exception.
+     */
+    public GlobalEnv extend(ByteBuffer src) throws SyntaxError, IOException {
+        SymbolPool forkedPool = symbolPool.fork();
+        SymbolTable globalTable = new SymbolTable(globals, symbolPool.countSymbols());
+        SrcParser srcParser = new SrcParser(new Lexer(src, typeTable, forkedPool), null,
+                Block.createGlobal(globalTable));
+        while (srcParser.parseNext() != null) {
+            // The declarations are only parsed for their symbols
+        }
+        return new GlobalEnv(typeTable, forkedPool, globalTable.persist());
+    }
+
+    /**
+     * Creates a parser for a source that sees the global symbols of the environment. Creating a parser only forks the
+     * symbol pool and the global symbols, both of which are shared instead of copied, so parsers can be created and
+     * used concurrently on any number of threads. The fork's symbol table only holds the ids of the source's own
+     * names, so its cost does not grow with the number of names in the environment.
+     *
+     * @param src    the buffer that holds the source.
+     * @param writer the writer of the output, null if the source is not written out.
+     * @return the parser.
+     */
+    public SrcParser createParser(ByteBuffer src, BufferedWriter writer) {
+        return new SrcParser(new Lexer(src, typeTable, symbolPool.fork()), writer,
+                Block.createGlobal(new SymbolTable(globals, symbolPool.countSymbols())));
+    }
+
+    public TypeTable getTypeTable() {
+        return typeTable;
+    }
+
+    public PersistentSymbolMap getGlobals() {
+        return globals;
+    }
+}
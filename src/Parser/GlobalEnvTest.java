@@ -0,0 +1,94 @@
+package Parser;
+
+import Exceptions.SyntaxError;
+import Nodes.BinaryNode;
+import Nodes.Node;
+import Nodes.ScopeNode;
+import Nodes.VarNode;
+import Types.TypeTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobalEnvTest {
+    private final static String GLOBALS = "var a = 1;\nlet b: float = 2.5;\n";
+
+    private ByteBuffer toBuffer(String src) {
+        return ByteBuffer.wrap(src.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String parse(GlobalEnv env, String src) throws SyntaxError, IOException {
+        StringWriter out = new StringWriter();
+        env.createParser(toBuffer(src), new BufferedWriter(out)).writeSrc();
+        return out.toString();
+    }
+
+    @Test
+    void testFork() {
+        try {
+            GlobalEnv env = GlobalEnv.empty(TypeTable.getInstance()).extend(toBuffer(GLOBALS));
+            assertEquals(2, env.getGlobals().size());
+
+            // A snippet sees the globals and its symbols get the slots after theirs
+            SrcParser srcParser = env.createParser(toBuffer("var c = a + b;\n{ a = c; }"), null);
+            VarNode c = (VarNode) ((BinaryNode) srcParser.parseNext()).getLeft();
+            assertEquals("float", c.getDataType().getId());
+            assertEquals(0, c.getScopeDepth());
+            assertEquals(2, c.getSlot());
+            Node assignment = ((ScopeNode) srcParser.parseNext()).getChild(0);
+            assertEquals(0, ((VarNode) ((BinaryNode) assignment).getLeft()).getSlot());
+
+            // The forks do not see each other's symbols
+            assertThrows(SyntaxError.class, () -> parse(env, "c = 1;"));
+            SyntaxError e = assertThrows(SyntaxError.class, () -> parse(env, "b = 1.0;"));
+            assertEquals("'b' is a constant on line 1", e.getMessage());
+            e = assertThrows(SyntaxError.class, () -> parse(env, "var a = 2;"));
+            assertEquals("Cannot redeclare a variable or a constant on line 1", e.getMessage());
+
+            // Extending an environment leaves it unchanged
+            GlobalEnv extendedEnv = env.extend(toBuffer("var c = true;"));
+            assertEquals(3, extendedEnv.getGlobals().size());
+            assertEquals(2, env.getGlobals().size());
+            parse(extendedEnv, "c = false;");
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    void testConcurrentForks() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            GlobalEnv env = GlobalEnv.empty(TypeTable.getInstance()).extend(toBuffer(GLOBALS));
+            List<Future<String>> results = new ArrayList<>();
+            List<String> srcs = new ArrayList<>();
+            for (int i = 0; i < 64; ++i) {
+                String src = "var x" + i + " = a * " + i + ";\n{ var y = x" + i + " + b; }";
+                srcs.add(src);
+                results.add(executor.submit(() -> parse(env, src)));
+            }
+            for (int i = 0; i < srcs.size(); ++i) {
+                // The forks parsed concurrently give the same output as a fork parsed alone
+                assertEquals(parse(env, srcs.get(i)), results.get(i).get());
+            }
+        } catch (SyntaxError | IOException | InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            fail();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,584 @@
+package Parser;
+
+import Exceptions.SyntaxError;
+import Lexer.IncrementalLexer;
+import Lexer.Lexer;
+import Lexer.TokenStream;
+import Nodes.BinaryNode;
+import Nodes.Node;
+import Nodes.NodeType;
+import Nodes.ScopeNode;
+import Nodes.UnaryNode;
+import Nodes.VarNode;
+import Symbols.PersistentSymbolMap;
+import Symbols.SymbolInfo;
+import Symbols.SymbolTable;
+import Symbols.VarInfo;
+import Tokens.Token;
+import Tokens.TokenType;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class IncrementalParser {
+    private final IncrementalLexer incLexer;
+    private TokenStream tokStream;
+    // The top-level scopes and blocks of the last parse, null if the last parse failed
+    private ArrayList<ScopeNode> scopes;
+    private ArrayList<ParsedBlock> blocks;
+    // The number of tokens to be added to the positions of the top-level blocks from an index on, which is moved
+    // lazily so that an edit only moves the blocks between it and the last edit
+    private int shiftFrom;
+    private int pendingShift;
+    // The lexer and statement parser of the current pass over the tokens
+    private Lexer lexer;
+    private StatementParser stmParser;
+
+    /**
+     * A block that has been parsed into a scope node, kept so that it can be re-parsed or reused after an edit.
+     */
+    private static class ParsedBlock {
+        private final ParsedBlock parent;
+        // The indices of the block's '{' and '}' in the current tokens, -1 if the token has been edited, without the
+        // shifts of the top-level block that the block is in
+        private int start;
+        private int end;
+        // The index of a top-level block in the list of top-level blocks
+        private int index;
+        // The number of tokens to be added to the positions of a top-level block and its nested blocks
+        private int shift;
+        private ScopeNode root;
+        // The scope node that has the block's root as a child
+        private ScopeNode parentRoot;
+        private int childIndex;
+        private final ArrayList<ParsedBlock> blocks = new ArrayList<>();
+        // The global symbols that a top-level block and its nested blocks looked up, null if a symbol was not found
+        private final HashMap<Integer, SymbolInfo> lookups = new HashMap<>();
+        // The global symbols visible at the start of a top-level block, null for a nested block
+        private PersistentSymbolMap globals;
+
+        private ParsedBlock(ParsedBlock parent) {
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * Creates a parser that keeps the AST of a text up to date as the text is edited.
+     *
+     * @param text the initial text.
+     * @throws SyntaxError if there is a syntax error in the text.
+     * @throws IOException if there is an IO exception.
+     */
+    public IncrementalParser(String text) throws SyntaxError, IOException {
+        incLexer = new IncrementalLexer(text);
+        tokStream = incLexer.getTokStream();
+        parseSrc(new HashMap<>());
+    }
+
+    /**
+     * Gets the top-level scopes of the current text.
+     *
+     * @return the top-level scopes or null if the current text cannot be parsed.
+     */
+    public ArrayList<ScopeNode> getScopes() {
+        return scopes;
+    }
+
+    /**
+     * Replaces a range of the text and updates the AST. Only the smallest block that encloses the edited tokens is
+     * re-parsed, in the scope that was visible at its start, and its new root replaces the old one. If the edit is not
+     * inside a block, or the block's braces no longer match, the enclosing block is tried instead and then the whole
+     * text is re-parsed. In the latter case, the top-level blocks whose tokens are unchanged are reused as long as the
+     * global symbols they look up have the same types. The nodes that are kept after the edit have their lines moved
+     * by the number of lines that the edit has added. If the text could not be parsed before the edit, it is parsed as
+     * a whole.
+     *
+     * @param offset      the position of the first byte to be replaced.
+     * @param removedLen  the number of bytes to be removed.
+     * @param insertedStr the string to be inserted.
+     * @return the top-level scopes of the edited text.
+     * @throws SyntaxError if there is a syntax error in the edited text, the text is edited anyway.
+     * @throws IOException if there is an IO exception.
+     */
+    public ArrayList<ScopeNode> edit(int offset, int removedLen, String insertedStr) throws SyntaxError, IOException {
+        int oldLastLine = tokStream == null ? 0 : tokStream.getLine(tokStream.countToks() - 1);
+        try {
+            tokStream = incLexer.edit(offset, removedLen, insertedStr);
+            if (scopes == null) {
+                parseSrc(new HashMap<>());
+                return scopes;
+            }
+
+            // The lexer gives the range of tokens that have changed, the tokens after it have only moved by the number
+            // of lines added, which is the same for all of them
+            int lineShift = tokStream.getLine(tokStream.countToks() - 1) - oldLastLine;
+            int prefix = incLexer.getChangeStart();
+            int oldEditEnd = incLexer.getChangeOldEnd();
+            int newEditEnd = incLexer.getChangeNewEnd();
+            if (prefix == oldEditEnd && prefix == newEditEnd && lineShift == 0) {
+                return scopes;
+            }
+            // Only the top-level blocks that overlap the changed tokens are moved now, those after them are moved
+            // lazily
+            int first = findBlock(prefix, false);
+            int last = findBlock(oldEditEnd, true);
+            moveShiftFrom(last);
+            pendingShift += newEditEnd - oldEditEnd;
+            List<ParsedBlock> overlapping = blocks.subList(first, last);
+            for (ParsedBlock entry : overlapping) {
+                applyShift(entry);
+            }
+            shiftBlocks(overlapping, prefix, oldEditEnd, newEditEnd - oldEditEnd);
+
+            // Find the innermost block that encloses the changed tokens
+            ParsedBlock target = null;
+            List<ParsedBlock> entries = overlapping;
+            for (int i = 0; i < entries.size(); ++i) {
+                ParsedBlock entry = entries.get(i);
+                if (entry.start >= 0 && entry.start < prefix && entry.end >= newEditEnd) {
+                    target = entry;
+                    entries = entry.blocks;
+                    i = -1;
+                }
+            }
+            for (ParsedBlock entry = target; entry != null; entry = entry.parent) {
+                if (reparseBlock(entry, lineShift)) {
+                    return scopes;
+                }
+            }
+
+            // Re-parse the whole text, reusing the top-level blocks that are outside the changed tokens
+            applyShifts();
+            HashMap<Integer, ParsedBlock> reusable = new HashMap<>();
+            for (ParsedBlock entry : blocks) {
+                if (entry.start >= 0 && entry.end >= 0 && entry.end < prefix) {
+                    reusable.put(entry.start, entry);
+                } else if (entry.start >= newEditEnd) {
+                    // The block is dropped if it cannot be reused, in which case moving its lines does no harm
+                    shiftLines(entry.root, lineShift);
+                    reusable.put(entry.start, entry);
+                }
+            }
+            parseSrc(reusable);
+            return scopes;
+        } catch (SyntaxError | IOException e) {
+            scopes = null;
+            blocks = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Moves the blocks after the changed tokens by the number of tokens that have been added and marks the braces that
+     * have been edited.
+     *
+     * @param entries    the blocks.
+     * @param prefix     the index of the first changed token.
+     * @param oldEditEnd the index after the last changed token before the edit.
+     * @param delta      the number of tokens added by the edit.
+     */
+    private static void shiftBlocks(List<ParsedBlock> entries, int prefix, int oldEditEnd, int delta) {
+        for (ParsedBlock entry : entries) {
+            entry.start = shiftTok(entry.start, prefix, oldEditEnd, delta);
+            entry.end = shiftTok(entry.end, prefix, oldEditEnd, delta);
+            shiftBlocks(entry.blocks, prefix, oldEditEnd, delta);
+        }
+    }
+
+    private static int shiftTok(int index, int prefix, int oldEditEnd, int delta) {
+        if (index >= oldEditEnd) {
+            return index + delta;
+        }
+        return index >= prefix ? -1 : index;
+    }
+
+    /**
+     * Finds the first top-level block that ends or starts at or after a token.
+     *
+     * @param index   the index of the token.
+     * @param byStart true to compare the block's start and false to compare its end.
+     * @return the index of the block in the list of top-level blocks.
+     */
+    private int findBlock(int index, boolean byStart) {
+        int lo = 0;
+        int hi = blocks.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            ParsedBlock entry = blocks.get(mid);
+            int shift = entry.shift + (mid >= shiftFrom ? pendingShift : 0);
+            if ((byStart ? entry.start : entry.end) + shift < index) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Moves the index from which the pending shift applies, adding it to the top-level blocks that it no longer
+     * applies to and removing it from those that it now applies to.
+     *
+     * @param to the new index.
+     */
+    private void moveShiftFrom(int to) {
+        for (int i = shiftFrom; i < to; ++i) {
+            blocks.get(i).shift += pendingShift;
+        }
+        for (int i = to; i < shiftFrom; ++i) {
+            blocks.get(i).shift -= pendingShift;
+        }
+        shiftFrom = to;
+    }
+
+    /**
+     * Adds all the shifts to the positions of the blocks.
+     */
+    private void applyShifts() {
+        moveShiftFrom(blocks.size());
+        pendingShift = 0;
+        for (ParsedBlock entry : blocks) {
+            applyShift(entry);
+        }
+    }
+
+    /**
+     * Adds the shift of a top-level block to its positions and to those of its nested blocks.
+     *
+     * @param entry the top-level block, the pending shift must not apply to it.
+     */
+    private static void applyShift(ParsedBlock entry) {
+        if (entry.shift != 0) {
+            moveBlock(entry, entry.shift);
+            entry.shift = 0;
+        }
+    }
+
+    private static void moveBlock(ParsedBlock entry, int delta) {
+        entry.start += delta;
+        entry.end += delta;
+        for (ParsedBlock child : entry.blocks) {
+            moveBlock(child, delta);
+        }
+    }
+
+    /**
+     * Starts a new pass over the current tokens.
+     */
+    private void startPass() {
+        lexer = new Lexer(tokStream);
+        stmParser = new StatementParser(new DeclParser(lexer, new ExprParser(lexer)));
+    }
+
+    /**
+     * Parses the current tokens into top-level scopes the same way as SrcParser.parseSrc(), reusing the given blocks.
+     *
+     * @param reusable the top-level blocks that can be reused if they are still valid, indexed by the position of
+     *                 their '{' in the current tokens.
+     * @throws SyntaxError if there is a syntax error.
+     * @throws IOException if there is an IO exception.
+     */
+    private void parseSrc(HashMap<Integer, ParsedBlock> reusable) throws SyntaxError, IOException {
+        startPass();
+        ArrayList<ScopeNode> newScopes = new ArrayList<>();
+        ArrayList<ParsedBlock> newBlocks = new ArrayList<>();
+        Block globalScope = new Block(null);
+        SymbolTable globalTable = globalScope.getSymbolTable();
+        // The global symbols declared so far, kept for the top-level blocks so that they can be re-parsed without
+        // declaring the globals before them again
+        PersistentSymbolMap globals = PersistentSymbolMap.empty();
+        Token tok;
+
+        while ((tok = lexer.lookahead()).getType() != TokenType.EOF) {
+            ScopeNode scopeRoot = new ScopeNode();
+            while (true) {
+                if (lexer.peekType() == TokenType.LBRACKETS) {
+                    ParsedBlock entry = reusable.get(lexer.getTokIndex());
+                    if (entry != null && isValid(entry, globalTable)) {
+                        lexer.seek(entry.end + 1);
+                    } else {
+                        entry = new ParsedBlock(null);
+                        globalTable.startRecording();
+                        try {
+                            entry.root = parseBlock(globalScope, entry);
+                        } finally {
+                            addLookups(entry, globalTable.stopRecording(), globalTable);
+                        }
+                        if (entry.root == null) {
+                            // An empty block ends the scope like in ScopeParser.parseNext()
+                            break;
+                        }
+                    }
+                    entry.parentRoot = scopeRoot;
+                    entry.childIndex = scopeRoot.countChildren();
+                    entry.globals = globals;
+                    scopeRoot.addChild(entry.root);
+                    newBlocks.add(entry);
+                } else {
+                    Node stmRoot = stmParser.parseStatement(globalScope);
+                    if (stmRoot == null) {
+                        break;
+                    }
+                    if (stmRoot.getType() != NodeType.EMPTY) {
+                        scopeRoot.addChild(stmRoot);
+                    }
+                    VarNode varNode = getDeclaredVar(stmRoot);
+                    if (varNode != null) {
+                        globals = globals.put(globalTable.getSymbol(varNode.getSymbolId()));
+                    }
+                }
+            }
+            if (scopeRoot.countChildren() == 0) {
+                throw new SyntaxError("Invalid syntax error at '" + tok.getValue() + "'", lexer.getCurrLine());
+            }
+            newScopes.add(scopeRoot);
+        }
+
+        for (int i = 0; i < newBlocks.size(); ++i) {
+            newBlocks.get(i).index = i;
+        }
+        scopes = newScopes;
+        blocks = newBlocks;
+        shiftFrom = newBlocks.size();
+        pendingShift = 0;
+    }
+
+    /**
+     * Parses a block the same way as BlockParser.parseBlock() and records its position and nested blocks.
+     *
+     * @param scope the current scope that surrounds the block.
+     * @param entry the entry that receives the block's position and nested blocks.
+     * @return the block's AST root or null if the block is empty.
+     * @throws SyntaxError if there is a syntax error.
+     * @throws IOException if there is an IO exception.
+     */
+    private ScopeNode parseBlock(Block scope, ParsedBlock entry) throws SyntaxError, IOException {
+        entry.start = lexer.getTokIndex();
+        lexer.consume();
+        Block newScope = new Block(scope);
+        ScopeNode root = new ScopeNode();
+
+        try {
+            while (true) {
+                if (lexer.peekType() == TokenType.LBRACKETS) {
+                    ParsedBlock child = new ParsedBlock(entry);
+                    child.root = parseBlock(newScope, child);
+                    if (child.root == null) {
+                        break;
+                    }
+                    child.parentRoot = root;
+                    child.childIndex = root.countChildren();
+                    root.addChild(child.root);
+                    entry.blocks.add(child);
+                } else {
+                    Node stmRoot = stmParser.parseStatement(newScope);
+                    if (stmRoot == null) {
+                        break;
+                    }
+                    if (stmRoot.getType() != NodeType.EMPTY) {
+                        root.addChild(stmRoot);
+                    }
+                }
+            }
+        } finally {
+            newScope.close();
+        }
+
+        if (lexer.peekType() != TokenType.RBRACKETS) {
+            throw new SyntaxError("Missing '}'", lexer.getCurrLine());
+        }
+        entry.end = lexer.getTokIndex();
+        lexer.consume();
+        return root.countChildren() == 0 ? null : root;
+    }
+
+    /**
+     * Re-parses a block in the scope that is visible at its start and replaces its root. The nodes after the block
+     * have their lines moved.
+     *
+     * @param entry     the block.
+     * @param lineShift the number of lines added by the edit.
+     * @return true if the block has been replaced and false if it is empty or its braces no longer match, in which
+     * case the AST is unchanged.
+     * @throws SyntaxError if there is a syntax error, the error is the first one in the source since the tokens before
+     *                     the block have not changed.
+     * @throws IOException if there is an IO exception.
+     */
+    private boolean reparseBlock(ParsedBlock entry, int lineShift) throws SyntaxError, IOException {
+        // Collect the blocks from the top-level one down to the block's parent
+        ArrayList<ParsedBlock> path = new ArrayList<>();
+        for (ParsedBlock ancestor = entry; ancestor != null; ancestor = ancestor.parent) {
+            path.add(0, ancestor);
+        }
+        ParsedBlock topEntry = path.get(0);
+
+        // Fork the global scope from the globals visible at the top-level block and then declare the symbols of the
+        // enclosing blocks
+        SymbolTable globalTable = new SymbolTable(topEntry.globals, incLexer.getSymbolPool().countSymbols());
+        Block globalScope = Block.createGlobal(globalTable);
+        // Recording starts in the global scope so that the lookups resolved by the enclosing blocks are not recorded
+        globalTable.startRecording();
+        // Every enclosing block gets its own scope so that the symbols get the same addresses as in a full parse
+        Block scope = globalScope;
+        for (int i = 1; i < path.size(); ++i) {
+            scope = new Block(scope);
+            declare(scope, path.get(i - 1).root, path.get(i).childIndex);
+        }
+
+        startPass();
+        lexer.seek(entry.start);
+        ParsedBlock newEntry = new ParsedBlock(entry.parent);
+        newEntry.globals = entry.globals;
+        // A re-parsed top-level block only needs its own lookups while an enclosing one keeps the old lookups too
+        ParsedBlock lookupEntry = entry == topEntry ? newEntry : topEntry;
+        try {
+            newEntry.root = parseBlock(scope, newEntry);
+        } finally {
+            // The lookups are resolved in the global scope alone
+            for (Block enclosing = scope; enclosing != globalScope; enclosing = enclosing.getParent()) {
+                enclosing.close();
+            }
+            addLookups(lookupEntry, globalTable.stopRecording(), globalTable);
+        }
+        if (newEntry.root == null || newEntry.end != entry.end) {
+            return false;
+        }
+
+        // Splice the new root in place of the old one
+        newEntry.parentRoot = entry.parentRoot;
+        newEntry.childIndex = entry.childIndex;
+        entry.parentRoot.setChild(entry.childIndex, newEntry.root);
+        if (entry.parent == null) {
+            newEntry.index = entry.index;
+            blocks.set(entry.index, newEntry);
+        } else {
+            entry.parent.blocks.set(entry.parent.blocks.indexOf(entry), newEntry);
+        }
+
+        // Move the nodes after the block: its later siblings, those of the enclosing blocks and the later scopes
+        if (lineShift != 0) {
+            for (ParsedBlock level = entry; level != null; level = level.parent) {
+                for (int i = level.childIndex + 1; i < level.parentRoot.countChildren(); ++i) {
+                    shiftLines(level.parentRoot.getChild(i), lineShift);
+                }
+            }
+            for (int i = scopes.indexOf(topEntry.parentRoot) + 1; i < scopes.size(); ++i) {
+                shiftLines(scopes.get(i), lineShift);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the tokens of a tree that has been kept after an edit to the lines they are on in the edited text.
+     *
+     * @param root      the root of the tree.
+     * @param lineShift the number of lines added by the edit.
+     */
+    private static void shiftLines(Node root, int lineShift) {
+        if (lineShift == 0) {
+            return;
+        }
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            Token tok = node.getTok();
+            if (tok != null) {
+                tok.setLineNum(tok.getLineNum() + lineShift);
+            }
+            if (node instanceof BinaryNode binaryNode) {
+                pushNode(stack, binaryNode.getLeft());
+                pushNode(stack, binaryNode.getRight());
+            } else if (node instanceof UnaryNode unaryNode) {
+                pushNode(stack, unaryNode.getChild());
+            } else if (node instanceof ScopeNode scopeNode) {
+                for (int i = 0; i < scopeNode.countChildren(); ++i) {
+                    stack.push(scopeNode.getChild(i));
+                }
+            }
+        }
+    }
+
+    private static void pushNode(ArrayDeque<Node> stack, Node node) {
+        if (node != null) {
+            stack.push(node);
+        }
+    }
+
+    /**
+     * Registers the variables and constants declared by the first children of a scope node.
+     *
+     * @param scope       the scope to register the symbols in.
+     * @param root        the scope node.
+     * @param numChildren the number of children to go through.
+     */
+    private static void declare(Block scope, ScopeNode root, int numChildren) {
+        for (int i = 0; i < numChildren; ++i) {
+            VarNode varNode = getDeclaredVar(root.getChild(i));
+            if (varNode != null) {
+                scope.getSymbolTable().register(new VarInfo(varNode.getTok().getValue(), varNode.getSymbolId(),
+                        varNode.getDataType(), varNode.isMutable()));
+            }
+        }
+    }
+
+    /**
+     * Gets the variable or constant declared by a statement.
+     *
+     * @param stmRoot the root of the statement.
+     * @return the variable node or null if the statement is not a declaration.
+     */
+    private static VarNode getDeclaredVar(Node stmRoot) {
+        if (stmRoot.getType() == NodeType.DEF) {
+            return (VarNode) ((BinaryNode) stmRoot).getLeft();
+        } else if (stmRoot.getType() == NodeType.DECL) {
+            return (VarNode) stmRoot;
+        }
+        return null;
+    }
+
+    /**
+     * Adds the global symbols looked up by a top-level block or its nested blocks.
+     *
+     * @param entry       the top-level block.
+     * @param ids         the ids of the symbols looked up.
+     * @param globalTable the global symbol table at the block's start.
+     */
+    private static void addLookups(ParsedBlock entry, int[] ids, SymbolTable globalTable) {
+        for (int id : ids) {
+            if (!entry.lookups.containsKey(id)) {
+                entry.lookups.put(id, globalTable.getSymbol(id));
+            }
+        }
+    }
+
+    /**
+     * Checks if a top-level block can be reused, which is the case if the global symbols it looked up have not
+     * changed, including the slots that the block's variable nodes refer to.
+     *
+     * @param entry       the top-level block.
+     * @param globalTable the global symbol table at the block's start.
+     * @return true if the block can be reused and false otherwise.
+     */
+    private static boolean isValid(ParsedBlock entry, SymbolTable globalTable) {
+        for (Map.Entry<Integer, SymbolInfo> lookup : entry.lookups.entrySet()) {
+            SymbolInfo oldSymbol = lookup.getValue();
+            SymbolInfo newSymbol = globalTable.getSymbol(lookup.getKey());
+            if (oldSymbol == null || newSymbol == null) {
+                if (oldSymbol != newSymbol) {
+                    return false;
+                }
+            } else if (oldSymbol.getDataType() != newSymbol.getDataType() ||
+                    ((VarInfo) oldSymbol).isMutable() != ((VarInfo) newSymbol).isMutable() ||
+                    oldSymbol.getSlot() != newSymbol.getSlot()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,142 @@
+package Parser;
+
+import Exceptions.SyntaxError;
+import Nodes.BinaryNode;
+import Nodes.Node;
+import Nodes.ScopeNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalParserTest {
+    private final static String SRC = "var a = 1;\n{ var b = a; }\n{ var c = 2; { c = c + a; } }\nvar d = a;";
+
+    private String toJson(ArrayList<ScopeNode> scopes) {
+        StringBuilder jsonStr = new StringBuilder();
+        for (ScopeNode scope : scopes) {
+            jsonStr.append(scope.toJson()).append("\n");
+        }
+        return jsonStr.toString();
+    }
+
+    private void checkEdit(IncrementalParser parser, String text, int offset, int removedLen, String insertedStr)
+            throws SyntaxError, IOException {
+        String newText = text.substring(0, offset) + insertedStr + text.substring(offset + removedLen);
+        assertEquals(toJson(new IncrementalParser(newText).getScopes()),
+                toJson(parser.edit(offset, removedLen, insertedStr)));
+    }
+
+    @Test
+    void testEditInBlock() {
+        try {
+            IncrementalParser parser = new IncrementalParser(SRC);
+            ScopeNode scope = parser.getScopes().get(0);
+            ScopeNode block1 = (ScopeNode) scope.getChild(1);
+            ScopeNode block2 = (ScopeNode) scope.getChild(2);
+
+            // Only the block that contains the edit is replaced
+            checkEdit(parser, SRC, SRC.indexOf('2'), 1, "3.5");
+            assertSame(scope, parser.getScopes().get(0));
+            assertSame(block1, scope.getChild(1));
+            assertNotSame(block2, scope.getChild(2));
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    void testEditGlobal() {
+        try {
+            IncrementalParser parser = new IncrementalParser(SRC);
+            ScopeNode block1 = (ScopeNode) parser.getScopes().get(0).getChild(1);
+
+            // The blocks are reused if the globals they look up have not changed
+            String text = SRC.replace("var d", "var e = true; var d");
+            checkEdit(parser, SRC, SRC.indexOf("var d"), 0, "var e = true; ");
+            assertSame(block1, parser.getScopes().get(0).getChild(1));
+
+            // Otherwise, they are parsed again
+            checkEdit(parser, text, text.indexOf('1'), 1, "1.5");
+            assertNotSame(block1, parser.getScopes().get(0).getChild(1));
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    void testEditBlocksInTurn() {
+        try {
+            IncrementalParser parser = new IncrementalParser(SRC);
+            String text = SRC;
+            String[][] edits = {{"2;", "2 + 3;"}, {"a; }", "a * 2; }"}, {"c + a", "c"}, {"var b", "let b"}};
+            // Edits that add or remove tokens in one block do not make the parser lose track of the other one
+            for (int i = 0; i < edits.length; ++i) {
+                ScopeNode scope = parser.getScopes().get(0);
+                ScopeNode other = (ScopeNode) scope.getChild(i % 2 == 0 ? 1 : 2);
+                int offset = text.indexOf(edits[i][0]);
+                checkEdit(parser, text, offset, edits[i][0].length(), edits[i][1]);
+                text = text.substring(0, offset) + edits[i][1] + text.substring(offset + edits[i][0].length());
+                assertSame(scope, parser.getScopes().get(0));
+                assertSame(other, scope.getChild(i % 2 == 0 ? 1 : 2));
+            }
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    private int getDefLine(Node def) {
+        return ((BinaryNode) def).getLeft().getTok().getLineNum();
+    }
+
+    @Test
+    void testEditLines() {
+        try {
+            IncrementalParser parser = new IncrementalParser(SRC);
+            ScopeNode scope = parser.getScopes().get(0);
+            ScopeNode block1 = (ScopeNode) scope.getChild(1);
+            ScopeNode block2 = (ScopeNode) scope.getChild(2);
+
+            // A reused block is moved to the lines it is on after the edit
+            String text = "var a = 1;\nvar z = 3;\n\n{ var b = a; }\n{ var c = 2; { c = c + a; } }\nvar d = a;";
+            checkEdit(parser, SRC, SRC.indexOf('{'), 0, "var z = 3;\n\n");
+            scope = parser.getScopes().get(0);
+            assertSame(block1, scope.getChild(2));
+            assertEquals(4, getDefLine(block1.getChild(0)));
+
+            // So are the nodes after a re-parsed block
+            checkEdit(parser, text, text.indexOf('{') + 1, 0, "\n\n");
+            scope = parser.getScopes().get(0);
+            assertNotSame(block1, scope.getChild(2));
+            assertSame(block2, scope.getChild(3));
+            assertEquals(6, getDefLine(((ScopeNode) scope.getChild(2)).getChild(0)));
+            assertEquals(7, getDefLine(block2.getChild(0)));
+            assertEquals(8, getDefLine(scope.getChild(4)));
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    void testEditError() {
+        try {
+            IncrementalParser parser = new IncrementalParser(SRC);
+            int offset = SRC.indexOf("a; }");
+            SyntaxError e = assertThrows(SyntaxError.class, () -> parser.edit(offset, 1, "x"));
+            assertEquals("Invalid ID 'x' on line 2", e.getMessage());
+            assertNull(parser.getScopes());
+
+            // The text is parsed again once it is fixed
+            checkEdit(parser, SRC.substring(0, offset) + "x" + SRC.substring(offset + 1), offset, 1, "a");
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
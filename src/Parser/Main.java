@@ -1,18 +1,55 @@
 package Parser;
 
+import Exceptions.SyntaxError;
+import Lexer.Lexer;
 import Parser.SrcParser;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 public class Main {
     public static void main(String[] args) {
-        try {
-            BufferedReader reader = new BufferedReader(new FileReader("src.txt"));
+        if (args.length > 0) {
+            parseBatch(args);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(Path.of("src.txt"))) {
+            // Map the source file into memory instead of decoding it through a reader
+            // and lex the whole file up front so that the parser only walks the token stream
+            Lexer lexer = new Lexer(new Lexer(channel).lexAll());
             BufferedWriter writer = new BufferedWriter(new FileWriter("ast.txt"));
-            SrcParser srcParser = new SrcParser(reader, writer);
+            SrcParser srcParser = new SrcParser(lexer, writer);
             srcParser.parseSrc();
-        } catch (IOException e) {
+        } catch (IOException | SyntaxError e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Parses a batch of source files given as the arguments: the output directory followed by the directories, files
+     * and glob patterns of the sources.
+     *
+     * @param args the command line arguments.
+     */
+    private static void parseBatch(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: Main <output directory> <source directory, file or glob>...");
+            return;
+        }
+        try {
+            BatchParser batchParser = new BatchParser();
+            BatchParser.Report report = batchParser.parseAll(
+                    BatchParser.collectJobs(Arrays.asList(args).subList(1, args.length), Path.of(args[0])));
+            for (BatchParser.Failure failure : report.getFailures()) {
+                System.err.println(failure);
+            }
+            System.out.println(report);
+        } catch (IOException | InterruptedException e) {
             e.printStackTrace();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
         }
     }
 }
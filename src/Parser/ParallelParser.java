@@ -0,0 +1,222 @@
+package Parser;
+
+import Exceptions.SyntaxError;
+import Lexer.Lexer;
+import Lexer.TokenStream;
+import Nodes.Node;
+import Nodes.NodeType;
+import Nodes.ScopeNode;
+import Tokens.Token;
+import Tokens.TokenType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class ParallelParser {
+    // Blocks with fewer tokens are parsed on the calling thread
+    private final static int MIN_BLOCK_TOKS = 1 << 12;
+    private final ForkJoinPool pool;
+    private final int minBlockToks;
+
+    public ParallelParser() {
+        this(ForkJoinPool.commonPool(), MIN_BLOCK_TOKS);
+    }
+
+    public ParallelParser(ForkJoinPool pool, int minBlockToks) {
+        this.pool = pool;
+        this.minBlockToks = minBlockToks;
+    }
+
+    /**
+     * Parses a token stream into its top-level scopes. Statements at the top level are parsed in order on the calling
+     * thread while the top-level blocks are parsed on the pool. Each block is parsed in a scope whose parent is a
+     * read-only snapshot of the global scope at the block's position, so the result and the first syntax error are
+     * the same as those of a sequential parse.
+     *
+     * @param tokStream the stream of tokens.
+     * @return the top-level scopes in order.
+     * @throws SyntaxError if there is a syntax error, the error is the first one in the source.
+     * @throws IOException if there is an IO exception.
+     */
+    public ArrayList<ScopeNode> parseSrc(TokenStream tokStream) throws SyntaxError, IOException {
+        Lexer lexer = new Lexer(tokStream);
+        StatementParser stmParser = new StatementParser(new DeclParser(lexer, new ExprParser(lexer)));
+        BlockParser blockParser = new BlockParser(lexer, stmParser);
+        ArrayList<ScopeNode> scopes = new ArrayList<>();
+        Block globalScope = new Block(null);
+        // Blocks can only be skipped if all braces are balanced, otherwise, the source is parsed sequentially
+        int[] blockEnds = matchBraces(tokStream);
+
+        // Children of the current top-level scope, either nodes or blocks that are being parsed on the pool
+        ArrayList<Object> children = new ArrayList<>();
+        Token tok;
+        while ((tok = lexer.lookahead()).getType() != TokenType.EOF) {
+            try {
+                // Parse the components of the scope the same way as ScopeParser.parseScope()
+                while (true) {
+                    if (lexer.peekType() == TokenType.LBRACKETS) {
+                        int start = lexer.getTokIndex();
+                        int end = blockEnds == null ? -1 : blockEnds[start];
+                        if (end - start >= minBlockToks && !mayBeEmpty(tokStream, start)) {
+                            Block snapshot = globalScope.snapshot();
+                            children.add(pool.submit(() -> createBlockParser(seek(new Lexer(tokStream), start))
+                                    .parseBlock(snapshot)));
+                            lexer.seek(end + 1);
+                        } else {
+                            // An empty block ends the scope like in ScopeParser.parseNext()
+                            ScopeNode blockRoot = blockParser.parseBlock(globalScope);
+                            if (blockRoot == null) {
+                                break;
+                            }
+                            children.add(blockRoot);
+                        }
+                    } else {
+                        Node stmRoot = stmParser.parseStatement(globalScope);
+                        if (stmRoot == null) {
+                            break;
+                        }
+                        children.add(stmRoot);
+                    }
+                }
+            } catch (SyntaxError | IOException e) {
+                // An error in a block that comes before takes precedence
+                resolve(children);
+                throw e;
+            }
+
+            ScopeNode scopeRoot = resolve(children);
+            if (scopeRoot == null) {
+                throw new SyntaxError("Invalid syntax error at '" + tok.getValue() + "'", lexer.getCurrLine());
+            }
+            scopes.add(scopeRoot);
+        }
+        return scopes;
+    }
+
+    /**
+     * Creates a block parser and the parsers it depends on for a lexer.
+     *
+     * @param lexer the lexer.
+     * @return a block parser.
+     */
+    private static BlockParser createBlockParser(Lexer lexer) {
+        return new BlockParser(lexer, new StatementParser(new DeclParser(lexer, new ExprParser(lexer))));
+    }
+
+    private static Lexer seek(Lexer lexer, int index) {
+        lexer.seek(index);
+        return lexer;
+    }
+
+    /**
+     * Waits for the blocks of a scope in order and drops the empty statements and blocks.
+     *
+     * @param children the scope's children, either nodes or blocks that are being parsed on the pool.
+     * @return a scope node or null if the scope is empty.
+     * @throws SyntaxError if there is a syntax error in a block, the error is the one in the first such block.
+     * @throws IOException if there is an IO exception.
+     */
+    @SuppressWarnings("unchecked")
+    private ScopeNode resolve(ArrayList<Object> children) throws SyntaxError, IOException {
+        ScopeNode scopeRoot = new ScopeNode();
+        try {
+            for (int i = 0; i < children.size(); ++i) {
+                Object child = children.get(i);
+                Node node = child instanceof Future ? getBlock((Future<ScopeNode>) child) : (Node) child;
+                if (node instanceof ScopeNode blockRoot ? blockRoot.countChildren() > 0 :
+                        node.getType() != NodeType.EMPTY) {
+                    scopeRoot.addChild(node);
+                }
+            }
+        } finally {
+            for (Object child : children) {
+                if (child instanceof Future<?> future) {
+                    future.cancel(true);
+                }
+            }
+            children.clear();
+        }
+        return scopeRoot.countChildren() == 0 ? null : scopeRoot;
+    }
+
+    /**
+     * Waits for a block that is being parsed on the pool.
+     *
+     * @param blockTask the task parsing the block.
+     * @return the block's AST root.
+     * @throws SyntaxError if there is a syntax error in the block.
+     * @throws IOException if there is an IO exception.
+     */
+    private static ScopeNode getBlock(Future<ScopeNode> blockTask) throws SyntaxError, IOException {
+        try {
+            return blockTask.get();
+        } catch (ExecutionException e) {
+            // The pool may wrap checked exceptions in runtime exceptions
+            Throwable cause = e.getCause();
+            while (cause.getCause() != null && !(cause instanceof SyntaxError) && !(cause instanceof IOException)) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof SyntaxError syntaxError) {
+                throw syntaxError;
+            } else if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Checks if a block may have no components, in which case it ends the surrounding scope and must be parsed before
+     * the tokens after it.
+     *
+     * @param tokStream the stream of tokens.
+     * @param start     the index of the block's '{'.
+     * @return true if the block starts with empty statements followed by '}' or another block and false otherwise.
+     */
+    private static boolean mayBeEmpty(TokenStream tokStream, int start) {
+        int i = start + 1;
+        while (tokStream.getType(i) == TokenType.SEMICOLON) {
+            ++i;
+        }
+        TokenType type = tokStream.getType(i);
+        return type == TokenType.RBRACKETS || type == TokenType.LBRACKETS;
+    }
+
+    /**
+     * Matches the braces in a token stream.
+     *
+     * @param tokStream the stream of tokens.
+     * @return an array that maps the index of every top-level '{' to the index of its '}', or null if the braces are
+     * not balanced.
+     */
+    private static int[] matchBraces(TokenStream tokStream) {
+        int numToks = tokStream.countToks();
+        int[] blockEnds = new int[numToks];
+        int depth = 0;
+        int start = -1;
+        for (int i = 0; i < numToks; ++i) {
+            TokenType type = tokStream.getType(i);
+            if (type == TokenType.LBRACKETS) {
+                if (depth++ == 0) {
+                    start = i;
+                }
+            } else if (type == TokenType.RBRACKETS) {
+                if (depth == 0) {
+                    return null;
+                }
+                if (--depth == 0) {
+                    blockEnds[start] = i;
+                }
+            }
+        }
+        return depth == 0 ? blockEnds : null;
+    }
+}
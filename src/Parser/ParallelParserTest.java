@@ -0,0 +1,75 @@
+package Parser;
+
+import Exceptions.SyntaxError;
+import Lexer.Lexer;
+import Lexer.TokenStream;
+import Nodes.ScopeNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelParserTest {
+    private final ParallelParser parallelParser = new ParallelParser(new ForkJoinPool(4), 1);
+
+    private TokenStream lex(String input) throws SyntaxError, IOException {
+        return new Lexer(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8))).lexAll();
+    }
+
+    private ArrayList<ScopeNode> parseSequentially(TokenStream tokStream) throws SyntaxError, IOException {
+        Lexer lexer = new Lexer(tokStream);
+        StatementParser stmParser = new StatementParser(new DeclParser(lexer, new ExprParser(lexer)));
+        ScopeParser scopeParser = new ScopeParser(lexer, stmParser, new BlockParser(lexer, stmParser));
+        Block globalScope = new Block(null);
+        ArrayList<ScopeNode> scopes = new ArrayList<>();
+        ScopeNode scopeRoot;
+        while ((scopeRoot = scopeParser.parseScope(globalScope)) != null) {
+            scopes.add(scopeRoot);
+        }
+        return scopes;
+    }
+
+    @Test
+    void testSameAsSequential() {
+        String input = "var a = 1;\n{ var b = a * 2.5; { let c: float = b; } }\n;\na = 2;\n" +
+                "{ var f = true; f = false; }\n{ a = a + 1; }\n{ ; }\nvar d = a;\n{ var e = d; }";
+        try {
+            TokenStream tokStream = lex(input);
+            ArrayList<ScopeNode> expected = parseSequentially(tokStream);
+            ArrayList<ScopeNode> actual = parallelParser.parseSrc(tokStream);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); ++i) {
+                assertEquals(expected.get(i).toJson(), actual.get(i).toJson());
+            }
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    void testFirstError() {
+        try {
+            // A block cannot see the globals declared after it
+            TokenStream tokStream = lex("{ var b = a; }\nvar a = 1;");
+            SyntaxError e = assertThrows(SyntaxError.class, () -> parallelParser.parseSrc(tokStream));
+            assertEquals(assertThrows(SyntaxError.class, () -> parseSequentially(tokStream)).getMessage(),
+                    e.getMessage());
+
+            // The error in the earlier block is reported
+            TokenStream errTokStream = lex("var a = 1;\n{ a = true; }\n{ b; }\nvar = 2;");
+            e = assertThrows(SyntaxError.class, () -> parallelParser.parseSrc(errTokStream));
+            assertEquals(assertThrows(SyntaxError.class, () -> parseSequentially(errTokStream)).getMessage(),
+                    e.getMessage());
+            assertTrue(e.getMessage().endsWith("line 2"));
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
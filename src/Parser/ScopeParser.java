@@ -5,6 +5,7 @@ import Lexer.Lexer;
 import Nodes.Node;
 import Nodes.NodeType;
 import Nodes.ScopeNode;
+import Tokens.TokenType;
 
 import java.io.IOException;
 
@@ -27,34 +28,46 @@ public class ScopeParser extends BaseParser {
      * @throws IOException if there is an IO exception.
      */
     public ScopeNode parseScope(Block scope) throws SyntaxError, IOException {
-        Node stmRoot;
-        ScopeNode blockRoot;
+        Node childRoot;
         ScopeNode scopeRoot = new ScopeNode();
-        boolean endFlag = false;
 
-        while (!endFlag) {
-            // Try parsing a statement
-            stmRoot = stmParser.parseStatement(scope);
-            endFlag = stmRoot == null;
+        while ((childRoot = parseNext(scope)) != null) {
+            scopeRoot.addChild(childRoot);
+        }
 
-            if (!endFlag) {
-                if (stmRoot.getType() != NodeType.EMPTY) {
-                    // Add statement node to scope node only if it is not an empty statement
-                    scopeRoot.addChild(stmRoot);
+        return scopeRoot.countChildren() == 0 ? null : scopeRoot;
+    }
+
+    /**
+     * Parses the next code component in a scope, skipping empty statements and empty blocks.
+     *
+     * @param scope the currently surrounding scope.
+     * @return the AST root of the component or null if the scope has no components left.
+     * @throws SyntaxError if there is a syntax error.
+     * @throws IOException if there is an IO exception.
+     */
+    public Node parseNext(Block scope) throws SyntaxError, IOException {
+        while (true) {
+            // Peek at the next token to decide between a block of code and a statement instead of trying both
+            if (lexer.peekType() == TokenType.LBRACKETS) {
+                ScopeNode blockRoot = blockParser.parseBlock(scope);
+                if (blockRoot == null) {
+                    return null;
+                }
+                if (blockRoot.countChildren() > 0) {
+                    // Return block node only if it is not an empty block
+                    return blockRoot;
                 }
             } else {
-                // If it does not work, try parsing a block of code
-                blockRoot = blockParser.parseBlock(scope);
-                endFlag = blockRoot == null;
-                if (!endFlag) {
-                    if (blockRoot.countChildren() > 0) {
-                        // Add block node to scope node only if it is not an empty block
-                        scopeRoot.addChild(blockRoot);
-                    }
+                Node stmRoot = stmParser.parseStatement(scope);
+                if (stmRoot == null) {
+                    return null;
+                }
+                if (stmRoot.getType() != NodeType.EMPTY) {
+                    // Return statement node only if it is not an empty statement
+                    return stmRoot;
                 }
             }
         }
-
-        return scopeRoot.countChildren() == 0 ? null : scopeRoot;
     }
 }
@@ -2,16 +2,20 @@ package Parser;
 
 import Exceptions.SyntaxError;
 import Lexer.Lexer;
+import Nodes.AstArena;
 import Nodes.Node;
+import Nodes.NodeType;
 import Tokens.Token;
 import Tokens.TokenType;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 
 public class SrcParser {
-    private final BufferedReader reader;
     private final BufferedWriter writer;
     private final Lexer lexer;
     private final ExprParser exprParser;
@@ -19,12 +23,33 @@ public class SrcParser {
     private final StatementParser stmParser;
     private final BlockParser blockParser;
     private final ScopeParser scopeParser;
-
+    // The JSON fields of a scope node up to its first child
+    private final static String SCOPE_JSON_HEAD = "\"Node type\": \"" + NodeType.SCOPE + "\",\n\"Children\": [\n";
+    // The global scope and the state of the top-level scope that parseNext() is in
+    private final Block globalScope;
+    private boolean inScope = false;
+    private boolean scopeEmpty;
+    private Token scopeStartTok;
 
     public SrcParser(BufferedReader reader, BufferedWriter writer) {
-        this.reader = reader;
+        this(new Lexer(reader), writer);
+    }
+
+    public SrcParser(Lexer lexer, BufferedWriter writer) {
+        this(lexer, writer, new Block(null));
+    }
+
+    /**
+     * Creates a parser whose global scope already holds symbols, such as a fork of a global environment.
+     *
+     * @param lexer       the lexer.
+     * @param writer      the writer of the output, null if the source is not written out.
+     * @param globalScope the global scope.
+     */
+    public SrcParser(Lexer lexer, BufferedWriter writer, Block globalScope) {
+        this.lexer = lexer;
         this.writer = writer;
-        lexer = new Lexer(reader);
+        this.globalScope = globalScope;
         exprParser = new ExprParser(lexer);
         declParser = new DeclParser(lexer, exprParser);
         stmParser = new StatementParser(declParser);
@@ -33,31 +58,129 @@ public class SrcParser {
     }
 
     /**
-     * Parses the source code using the provided reader and writer.
+     * Parses the source code using the provided reader and writer. Every statement or block is written out as soon
+     * as it is parsed so that only one of them is kept in memory at a time.
      */
     public void parseSrc() {
-        Block globalScope = new Block(null);
+        try {
+            writeSrc();
+        } catch (IOException | SyntaxError e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Parses the source code and writes it out like parseSrc() but lets the caller handle the errors.
+     *
+     * @throws SyntaxError if there is a syntax error, part of the output may have been written then.
+     * @throws IOException if there is an IO exception.
+     */
+    public void writeSrc() throws SyntaxError, IOException {
         Token tok;
         Node node;
-        String jsonStr;
 
-        try {
-            writer.write("[\n");
-
-            while ((tok = lexer.lookahead()) != null && tok.getType() != TokenType.EOF) {
-                node = scopeParser.parseScope(globalScope);
-                if (node != null) {
-                    jsonStr = "{\n" + node.toJson() + "\n},\n";
-                    writer.write(jsonStr);
-                } else {
-                    throw new SyntaxError("Invalid syntax error at '" + tok.getValue() + "'", lexer.getCurrLine());
+        writer.write("[\n");
+
+        while ((tok = lexer.lookahead()) != null && tok.getType() != TokenType.EOF) {
+            node = scopeParser.parseNext(globalScope);
+            if (node == null) {
+                throw new SyntaxError("Invalid syntax error at '" + tok.getValue() + "'", lexer.getCurrLine());
+            }
+            // Write the top-level scope around its children the same way as ScopeNode.toJson()
+            writer.write("{\n" + SCOPE_JSON_HEAD);
+            do {
+                writer.write("{\n" + node.toJson() + "\n},");
+            } while ((node = scopeParser.parseNext(globalScope)) != null);
+            writer.write("\n]\n},\n");
+        }
+
+        writer.write("\n]");
+        writer.close();
+    }
+
+    /**
+     * Parses the next top-level statement or block, which the caller can drop once it has been handled so that
+     * memory is bounded by the largest statement or block instead of the whole source. Empty statements and blocks
+     * are skipped.
+     *
+     * @return the AST root of the statement or block, or null if the end of the source has been reached.
+     * @throws SyntaxError if there is a syntax error.
+     * @throws IOException if there is an IO exception.
+     */
+    public Node parseNext() throws SyntaxError, IOException {
+        while (true) {
+            if (!inScope) {
+                Token tok = lexer.lookahead();
+                if (tok.getType() == TokenType.EOF) {
+                    return null;
                 }
+                inScope = true;
+                scopeEmpty = true;
+                scopeStartTok = tok;
             }
+            Node node = scopeParser.parseNext(globalScope);
+            if (node != null) {
+                scopeEmpty = false;
+                return node;
+            }
+            // A top-level scope ends where no statement or block can be parsed, it must not be empty
+            inScope = false;
+            if (scopeEmpty) {
+                throw new SyntaxError("Invalid syntax error at '" + scopeStartTok.getValue() + "'",
+                        lexer.getCurrLine());
+            }
+        }
+    }
 
-            writer.write("\n]");
-            writer.close();
-        } catch (IOException | SyntaxError e) {
-            e.printStackTrace();
+    /**
+     * Parses the source code into an arena instead of writing it out. Every statement or block is copied into the
+     * arena as soon as it is parsed, under the node of its top-level scope, so that only the arena and one statement
+     * or block are kept in memory at a time.
+     *
+     * @param arena the arena that receives the top-level scopes as its roots.
+     * @throws SyntaxError if there is a syntax error.
+     * @throws IOException if there is an IO exception.
+     */
+    public void parseSrc(AstArena arena) throws SyntaxError, IOException {
+        Token tok;
+        Node node;
+        int scope;
+
+        while ((tok = lexer.lookahead()) != null && tok.getType() != TokenType.EOF) {
+            node = scopeParser.parseNext(globalScope);
+            if (node == null) {
+                throw new SyntaxError("Invalid syntax error at '" + tok.getValue() + "'", lexer.getCurrLine());
+            }
+            // The scope node is added before its children so that it is the first node of its tree
+            scope = arena.addNode(NodeType.SCOPE, null, null);
+            do {
+                arena.addChild(scope, arena.copyTree(node));
+            } while ((node = scopeParser.parseNext(globalScope)) != null);
+            arena.addRoot(scope);
+        }
+    }
+
+    /**
+     * Parses a source file into an arena using a cache. If the cache holds the AST of a source with the same content
+     * and the same tables, it is loaded from the cache instead of lexing and parsing the file, otherwise, the file is
+     * parsed and its AST is stored in the cache.
+     *
+     * @param srcPath the path to the source file.
+     * @param cache   the cache of ASTs.
+     * @param arena   the arena that receives the top-level scopes as its roots.
+     * @throws SyntaxError if there is a syntax error, nothing is stored in the cache then.
+     * @throws IOException if there is an IO exception.
+     */
+    public static void parseSrc(Path srcPath, AstCache cache, AstArena arena) throws SyntaxError, IOException {
+        try (FileChannel channel = FileChannel.open(srcPath)) {
+            MappedByteBuffer src = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] key = cache.getKey(src);
+            if (cache.load(key, arena)) {
+                return;
+            }
+            int firstRoot = arena.countRoots();
+            new SrcParser(new Lexer(new Lexer(src).lexAll()), null).parseSrc(arena);
+            cache.store(key, arena, firstRoot);
         }
     }
 }
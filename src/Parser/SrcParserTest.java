@@ -0,0 +1,86 @@
+package Parser;
+
+import Exceptions.SyntaxError;
+import Lexer.Lexer;
+import Nodes.BinaryNode;
+import Nodes.Node;
+import Nodes.NodeType;
+import Nodes.ScopeNode;
+import Nodes.VarNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SrcParserTest {
+    private SrcParser createParser(String input) {
+        return new SrcParser(new Lexer(new BufferedReader(new StringReader(input))), null);
+    }
+
+    @Test
+    void testParseNext() {
+        String input = "var a = 1;\n;\n{ }\n{ var b = a; }\na = a + 1;";
+        try {
+            SrcParser srcParser = createParser(input);
+            Node node = srcParser.parseNext();
+            assertEquals(NodeType.DEF, node.getType());
+            // Empty statements and blocks are skipped
+            node = srcParser.parseNext();
+            assertEquals(NodeType.SCOPE, node.getType());
+            assertEquals(1, ((ScopeNode) node).countChildren());
+            node = srcParser.parseNext();
+            assertEquals(NodeType.BINARY_OP, node.getType());
+            assertNull(srcParser.parseNext());
+            assertNull(srcParser.parseNext());
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    void testParseNextError() {
+        SrcParser srcParser = createParser("var a = 1;\n}");
+        try {
+            assertEquals(NodeType.DEF, srcParser.parseNext().getType());
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+        SyntaxError e = assertThrows(SyntaxError.class, srcParser::parseNext);
+        assertEquals("Invalid syntax error at '}' on line 2", e.getMessage());
+    }
+
+    @Test
+    void testAddresses() {
+        String input = "var a = 1;\nlet b = 2;\n{ var c = a; { var d = c + b; d = a; } }";
+        try {
+            SrcParser srcParser = createParser(input);
+            VarNode b = (VarNode) ((BinaryNode) srcParser.parseNext()).getLeft();
+            b = (VarNode) ((BinaryNode) srcParser.parseNext()).getLeft();
+            assertEquals(0, b.getScopeDepth());
+            assertEquals(1, b.getSlot());
+
+            ScopeNode block = (ScopeNode) srcParser.parseNext();
+            VarNode c = (VarNode) ((BinaryNode) block.getChild(0)).getLeft();
+            assertEquals(1, c.getScopeDepth());
+            assertEquals(0, c.getSlot());
+            // Variables are resolved to the depth of the scope that declares them and their slot in it
+            ScopeNode nestedBlock = (ScopeNode) block.getChild(1);
+            BinaryNode cPlusB = (BinaryNode) ((BinaryNode) nestedBlock.getChild(0)).getRight();
+            assertEquals(1, ((VarNode) cPlusB.getLeft()).getScopeDepth());
+            assertEquals(0, ((VarNode) cPlusB.getRight()).getScopeDepth());
+            assertEquals(1, ((VarNode) cPlusB.getRight()).getSlot());
+            BinaryNode assignment = (BinaryNode) nestedBlock.getChild(1);
+            assertEquals(2, ((VarNode) assignment.getLeft()).getScopeDepth());
+            assertEquals(0, ((VarNode) assignment.getLeft()).getSlot());
+            assertEquals(0, ((VarNode) assignment.getRight()).getSlot());
+        } catch (SyntaxError | IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package Symbols;
+
+public class PersistentSymbolMap {
+    // Each level of the trie consumes this many bits of the symbol id, starting from the lowest bits so that the
+    // densely assigned ids spread evenly across the root
+    private final static int BITS = 5;
+    private final static int MASK = (1 << BITS) - 1;
+    private final static PersistentSymbolMap EMPTY = new PersistentSymbolMap(new TrieNode(0, new Object[0]), 0);
+    private final TrieNode root;
+    private final int size;
+
+    /**
+     * A node of the hash array mapped trie. The bitmap tells which of the node's 32 branches are present and the
+     * children hold the present branches in order, each child is either a symbol or a node one level down.
+     */
+    private static class TrieNode {
+        private final int bitmap;
+        private final Object[] children;
+
+        TrieNode(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+    }
+
+    private PersistentSymbolMap(TrieNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Gets the map without any symbol.
+     *
+     * @return the empty map.
+     */
+    public static PersistentSymbolMap empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the symbol associated with a symbol id.
+     *
+     * @param symbolId the interned id that identifies a symbol in the map.
+     * @return a symbol if one exists and null otherwise.
+     */
+    public SymbolInfo get(int symbolId) {
+        TrieNode node = root;
+        for (int shift = 0; ; shift += BITS) {
+            int bit = 1 << ((symbolId >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = node.children[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (child instanceof TrieNode childNode) {
+                node = childNode;
+            } else {
+                SymbolInfo symbol = (SymbolInfo) child;
+                return symbol.getSymbolId() == symbolId ? symbol : null;
+            }
+        }
+    }
+
+    /**
+     * Creates a map that holds the symbols of this map plus a new symbol, which replaces the symbol with the same id.
+     * Only the nodes on the path to the new symbol are copied, the rest are shared with this map, which is not
+     * modified.
+     *
+     * @param symbol the symbol to be added, it must not be modified once it is in the map.
+     * @return the new map.
+     */
+    public PersistentSymbolMap put(SymbolInfo symbol) {
+        int newSize = get(symbol.getSymbolId()) == null ? size + 1 : size;
+        return new PersistentSymbolMap(put(root, symbol, 0), newSize);
+    }
+
+    private static TrieNode put(TrieNode node, SymbolInfo symbol, int shift) {
+        int symbolId = symbol.getSymbolId();
+        int bit = 1 << ((symbolId >>> shift) & MASK);
+        int i = Integer.bitCount(node.bitmap & (bit - 1));
+        Object[] children;
+        if ((node.bitmap & bit) == 0) {
+            // Insert the symbol as a new branch
+            children = new Object[node.children.length + 1];
+            System.arraycopy(node.children, 0, children, 0, i);
+            children[i] = symbol;
+            System.arraycopy(node.children, i, children, i + 1, node.children.length - i);
+            return new TrieNode(node.bitmap | bit, children);
+        }
+
+        Object child = node.children[i];
+        Object newChild;
+        if (child instanceof TrieNode childNode) {
+            newChild = put(childNode, symbol, shift + BITS);
+        } else if (((SymbolInfo) child).getSymbolId() == symbolId) {
+            newChild = symbol;
+        } else {
+            newChild = merge((SymbolInfo) child, symbol, shift + BITS);
+        }
+        children = node.children.clone();
+        children[i] = newChild;
+        return new TrieNode(node.bitmap, children);
+    }
+
+    /**
+     * Creates the nodes that split two symbols whose ids have the same bits up to a level.
+     *
+     * @param symbol1 the first symbol.
+     * @param symbol2 the second symbol, its id differs from the first one's.
+     * @param shift   the position of the bits that the new node branches on.
+     * @return the node that holds both symbols.
+     */
+    private static TrieNode merge(SymbolInfo symbol1, SymbolInfo symbol2, int shift) {
+        int branch1 = (symbol1.getSymbolId() >>> shift) & MASK;
+        int branch2 = (symbol2.getSymbolId() >>> shift) & MASK;
+        if (branch1 == branch2) {
+            return new TrieNode(1 << branch1, new Object[]{merge(symbol1, symbol2, shift + BITS)});
+        }
+        Object[] children = branch1 < branch2 ? new Object[]{symbol1, symbol2} : new Object[]{symbol2, symbol1};
+        return new TrieNode((1 << branch1) | (1 << branch2), children);
+    }
+}
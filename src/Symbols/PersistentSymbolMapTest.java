@@ -0,0 +1,56 @@
+package Symbols;
+
+import Types.TypeTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentSymbolMapTest {
+    private VarInfo createVar(int symbolId) {
+        return new VarInfo("v" + symbolId, symbolId, TypeTable.getInstance().getType("int"), true);
+    }
+
+    @Test
+    void testPut() {
+        Random random = new Random(7);
+        HashMap<Integer, VarInfo> expected = new HashMap<>();
+        PersistentSymbolMap map = PersistentSymbolMap.empty();
+        for (int i = 0; i < 5000; ++i) {
+            // Mix dense ids with ids that share their low bits
+            int symbolId = random.nextBoolean() ? random.nextInt(2000) : random.nextInt(64) << 20;
+            VarInfo symbol = createVar(symbolId);
+            expected.put(symbolId, symbol);
+            map = map.put(symbol);
+        }
+        assertEquals(expected.size(), map.size());
+        for (int symbolId = 0; symbolId < 2000; ++symbolId) {
+            assertSame(expected.get(symbolId), map.get(symbolId));
+        }
+        for (int i = 0; i < 64; ++i) {
+            assertSame(expected.get(i << 20), map.get(i << 20));
+        }
+        assertNull(map.get(-1));
+    }
+
+    @Test
+    void testSharing() {
+        PersistentSymbolMap map = PersistentSymbolMap.empty();
+        for (int symbolId = 0; symbolId < 100; ++symbolId) {
+            map = map.put(createVar(symbolId));
+        }
+
+        // Putting into the map leaves it unchanged
+        VarInfo replacement = createVar(5);
+        PersistentSymbolMap newMap = map.put(replacement).put(createVar(100));
+        assertEquals(100, map.size());
+        assertEquals(101, newMap.size());
+        assertNotSame(replacement, map.get(5));
+        assertSame(replacement, newMap.get(5));
+        assertNull(map.get(100));
+        assertSame(map.get(6), newMap.get(6));
+        assertEquals(0, PersistentSymbolMap.empty().size());
+    }
+}
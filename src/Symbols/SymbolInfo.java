@@ -4,11 +4,18 @@ import Types.TypeInfo;
 
 public abstract class SymbolInfo {
     protected final String id;
+    // The id of the interned name in the lexer's symbol pool
+    protected final int symbolId;
     protected final SymbolType symbolType;
     protected TypeInfo dataType;
+    // The address of the symbol's storage, assigned when it is registered: the depth of its scope, 0 for the global
+    // scope, and its slot index among the symbols of that scope
+    protected int scopeDepth = -1;
+    protected int slot = -1;
 
-    public SymbolInfo(String id, SymbolType symbolType, TypeInfo dataType) {
+    public SymbolInfo(String id, int symbolId, SymbolType symbolType, TypeInfo dataType) {
         this.id = id;
+        this.symbolId = symbolId;
         this.symbolType = symbolType;
         this.dataType = dataType;
     }
@@ -17,6 +24,10 @@ public abstract class SymbolInfo {
         return id;
     }
 
+    public int getSymbolId() {
+        return symbolId;
+    }
+
     public SymbolType getSymbolType() {
         return symbolType;
     }
@@ -29,6 +40,19 @@ public abstract class SymbolInfo {
         this.dataType = dataType;
     }
 
+    public int getScopeDepth() {
+        return scopeDepth;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    void setAddress(int scopeDepth, int slot) {
+        this.scopeDepth = scopeDepth;
+        this.slot = slot;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
@@ -0,0 +1,175 @@
+package Symbols;
+
+import Tokens.TokenSrc;
+
+import java.util.Arrays;
+
+public class SymbolPool {
+    private final static int INIT_CAPACITY = 64;
+    // The pool that this pool was forked from, whose names keep their ids here, null if the pool was not forked
+    private final SymbolPool base;
+    // The number of names in the base pool, the names of this pool get the ids after them
+    private final int baseCount;
+    // Names and their hash codes indexed by symbol id minus the base count
+    private String[] names = new String[INIT_CAPACITY];
+    private int[] hashes = new int[INIT_CAPACITY];
+    // Open-addressing hash table that stores symbol ids plus one, 0 marks an empty slot
+    private int[] slots = new int[INIT_CAPACITY * 2];
+    private int count = 0;
+
+    public SymbolPool() {
+        this(null);
+    }
+
+    private SymbolPool(SymbolPool base) {
+        this.base = base;
+        this.baseCount = base == null ? 0 : base.countSymbols();
+    }
+
+    /**
+     * Creates a pool in which the names of this pool keep their ids and new names are interned without modifying this
+     * pool. Names must no longer be interned into this pool, it can then be read by the forks on any thread.
+     *
+     * @return the forked pool.
+     */
+    public SymbolPool fork() {
+        return new SymbolPool(this);
+    }
+
+    /**
+     * Interns a name from the source and gets its symbol id. The name is only copied out of the source the first
+     * time it is interned.
+     *
+     * @param src    the source that contains the name.
+     * @param offset the position of the name in the source.
+     * @param length the length of the name in the source.
+     * @return a symbol id, symbol ids are assigned densely from 0 in the order that names are first interned.
+     */
+    public int intern(TokenSrc src, int offset, int length) {
+        int hash = src.hashStr(offset, length);
+        int id = find(src, offset, length, hash);
+        return id >= 0 ? id : add(src.getStr(offset, length), hash);
+    }
+
+    /**
+     * Interns a name and gets its symbol id.
+     *
+     * @param name the name to be interned.
+     * @return a symbol id, symbol ids are assigned densely from 0 in the order that names are first interned.
+     */
+    public int intern(String name) {
+        int hash = name.hashCode();
+        int id = find(name, hash);
+        return id >= 0 ? id : add(name, hash);
+    }
+
+    private int find(TokenSrc src, int offset, int length, int hash) {
+        if (base != null) {
+            int id = base.find(src, offset, length, hash);
+            if (id >= 0) {
+                return id;
+            }
+        }
+        int mask = slots.length - 1;
+        int i = mix(hash) & mask;
+        int slot;
+        while ((slot = slots[i]) != 0) {
+            int localId = slot - 1 - baseCount;
+            if (hashes[localId] == hash && src.equalsStr(offset, length, names[localId])) {
+                return slot - 1;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int find(String name, int hash) {
+        if (base != null) {
+            int id = base.find(name, hash);
+            if (id >= 0) {
+                return id;
+            }
+        }
+        int mask = slots.length - 1;
+        int i = mix(hash) & mask;
+        int slot;
+        while ((slot = slots[i]) != 0) {
+            int localId = slot - 1 - baseCount;
+            if (hashes[localId] == hash && names[localId].equals(name)) {
+                return slot - 1;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the name associated with a symbol id.
+     *
+     * @param id the symbol id.
+     * @return the interned name.
+     */
+    public String getName(int id) {
+        return id < baseCount ? base.getName(id) : names[id - baseCount];
+    }
+
+    /**
+     * Counts the number of interned names, including those of the base pool.
+     *
+     * @return the number of symbol ids that have been assigned.
+     */
+    public int countSymbols() {
+        return baseCount + count;
+    }
+
+    /**
+     * Adds a new name, growing the table if it is half full.
+     *
+     * @param name the name to be added.
+     * @param hash the name's hash code.
+     * @return the new symbol id.
+     */
+    private int add(String name, int hash) {
+        int localId = count++;
+        if (localId == names.length) {
+            names = Arrays.copyOf(names, localId * 2);
+            hashes = Arrays.copyOf(hashes, localId * 2);
+        }
+        names[localId] = name;
+        hashes[localId] = hash;
+        insertSlot(hash, baseCount + localId);
+        if (count * 2 > slots.length) {
+            rehash();
+        }
+        return baseCount + localId;
+    }
+
+    private void insertSlot(int hash, int id) {
+        int mask = slots.length - 1;
+        int i = mix(hash) & mask;
+        while (slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = id + 1;
+    }
+
+    /**
+     * Doubles the number of slots and reinserts all symbol ids.
+     */
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        for (int localId = 0; localId < count; ++localId) {
+            insertSlot(hashes[localId], baseCount + localId);
+        }
+    }
+
+    /**
+     * Spreads the high bits of a hash code to the low bits that are used to index the table.
+     *
+     * @param hash the hash code.
+     * @return the mixed hash code.
+     */
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -1,42 +1,298 @@
 package Symbols;
 
+import java.util.Arrays;
 import java.util.HashMap;
 
 public class SymbolTable {
-    private final HashMap<String, SymbolInfo> symbolMap = new HashMap<>();
-    private final SymbolTable parent;
+    private final static int INIT_CAPACITY = 8;
+    // The innermost visible symbol of every symbol id and the depth of the scope that registered it, both indexed by
+    // symbol id minus the id base, which the symbol pool assigns densely so that a lookup is a single array access at
+    // any depth
+    private SymbolInfo[] symbols = new SymbolInfo[INIT_CAPACITY];
+    private int[] depths = new int[INIT_CAPACITY];
+    // The smallest id stored in the arrays, the ids of a forked table's own names start after those of the names it
+    // was forked from so that the arrays do not grow with the size of the environment
+    private final int idBase;
+    // The symbols and depths of the ids below the base, which are only registered when a symbol hides a global, null
+    // until one is registered
+    private HashMap<Integer, SymbolInfo> lowSymbols = null;
+    private HashMap<Integer, Integer> lowDepths = null;
+    // Undo log of the nested scopes: the ids registered in them in order, along with the symbols and depths that the
+    // registrations hid, the global scope is never closed so its registrations are not logged
+    private int[] undoIds = new int[INIT_CAPACITY];
+    private SymbolInfo[] undoSymbols = new SymbolInfo[INIT_CAPACITY];
+    private int[] undoDepths = new int[INIT_CAPACITY];
+    private int undoCount = 0;
+    // The size of the undo log when each nested scope was opened, indexed by the scope's depth minus one
+    private int[] scopeStarts = new int[INIT_CAPACITY];
+    // The number of slots assigned in each open scope, indexed by the scope's depth
+    private int[] slotCounts = new int[INIT_CAPACITY];
+    // The depth of the innermost open scope, 0 for the global scope
+    private int depth = 0;
+    // The depth of the outermost scope, which is 0 unless the table is a snapshot of a nested scope
+    private int baseDepth = 0;
+    // True if no symbol can be registered in the outermost scope
+    private final boolean readOnly;
+    // The global symbols that the table was forked from, which are visible unless hidden by the table's own symbols,
+    // null if the table was not forked
+    private final PersistentSymbolMap globals;
+    // Ids of the symbols looked up that are resolved at or above the recording depth or not resolved, null if not
+    // recording
+    private int[] lookups = null;
+    private int numLookups;
+    private int recordDepth;
 
-    public SymbolTable(SymbolTable parent) {
-        this.parent = parent;
+    public SymbolTable() {
+        this(false, null, 0);
     }
 
-    public SymbolTable getParent() {
-        return parent;
+    /**
+     * Creates a table whose global scope starts with persistent global symbols. The globals are shared instead of
+     * copied, so any number of tables can be forked from them on any thread. The global symbols registered in the
+     * table get the slots after those of the globals, which must hold the slots from 0 to their count minus one as
+     * they do when they are created by persist(). The table only allocates for the ids from the id base on, so the
+     * cost of a fork does not depend on the number of names in the environment.
+     *
+     * @param globals the global symbols.
+     * @param idBase  the first id of the names that the globals do not know, such as the number of names in the pool
+     *                that the source's symbol pool was forked from.
+     */
+    public SymbolTable(PersistentSymbolMap globals, int idBase) {
+        this(false, globals, idBase);
+        slotCounts[0] = globals.size();
+    }
+
+    private SymbolTable(boolean readOnly, PersistentSymbolMap globals, int idBase) {
+        this.readOnly = readOnly;
+        this.globals = globals;
+        this.idBase = idBase;
+    }
+
+    /**
+     * Copies the symbols visible in the innermost scope into a table whose outermost scope is the innermost scope of
+     * this table and is read-only. The copy is not affected by symbols registered later, so it can be handed to
+     * another thread that parses nested scopes in it, and those scopes are at the same depths as they would be here.
+     *
+     * @return the copy of the table.
+     */
+    public SymbolTable snapshot() {
+        SymbolTable copy = new SymbolTable(true, globals, idBase);
+        copy.symbols = Arrays.copyOf(symbols, symbols.length);
+        copy.depths = Arrays.copyOf(depths, depths.length);
+        if (lowSymbols != null) {
+            copy.lowSymbols = new HashMap<>(lowSymbols);
+            copy.lowDepths = new HashMap<>(lowDepths);
+        }
+        copy.depth = copy.baseDepth = depth;
+        copy.scopeStarts = new int[Math.max(INIT_CAPACITY, depth * 2)];
+        copy.slotCounts = new int[Math.max(INIT_CAPACITY, depth * 2 + 1)];
+        return copy;
+    }
+
+    /**
+     * Adds the global symbols of the table to the globals it was forked from, if any, and makes them persistent. The
+     * result shares its structure with the globals and is not affected by symbols registered later.
+     *
+     * @return the persistent global symbols.
+     * @throws IllegalStateException if a nested scope is open.
+     */
+    public PersistentSymbolMap persist() throws IllegalStateException {
+        if (depth != 0) {
+            throw new IllegalStateException("Cannot persist a table with open nested scopes");
+        }
+        PersistentSymbolMap map = globals == null ? PersistentSymbolMap.empty() : globals;
+        for (SymbolInfo symbol : symbols) {
+            if (symbol != null) {
+                map = map.put(symbol);
+            }
+        }
+        if (lowSymbols != null) {
+            for (SymbolInfo symbol : lowSymbols.values()) {
+                map = map.put(symbol);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Opens a nested scope, the symbols registered from now on are hidden again once the scope is closed.
+     */
+    public void openScope() {
+        if (depth == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, depth * 2);
+        }
+        scopeStarts[depth++] = undoCount;
+        if (depth == slotCounts.length) {
+            slotCounts = Arrays.copyOf(slotCounts, depth * 2);
+        }
+        slotCounts[depth] = 0;
+    }
+
+    /**
+     * Closes the innermost nested scope by popping its own entries off the undo log, which restores the symbols that
+     * they hid.
+     *
+     * @throws IllegalStateException if no nested scope is open.
+     */
+    public void closeScope() throws IllegalStateException {
+        if (depth == baseDepth) {
+            throw new IllegalStateException("Cannot close the outermost scope");
+        }
+        int start = scopeStarts[--depth];
+        while (undoCount > start) {
+            --undoCount;
+            setEntry(undoIds[undoCount], undoSymbols[undoCount], undoDepths[undoCount]);
+            undoSymbols[undoCount] = null;
+        }
+    }
+
+    /**
+     * Counts the slots assigned in the innermost open scope, which is the size of the scope's storage.
+     *
+     * @return the number of slots.
+     */
+    public int countSlots() {
+        return slotCounts[depth];
     }
 
     /**
-     * Adds a new symbol to the table.
+     * Adds a new symbol to the innermost open scope and assigns it the scope's depth and the scope's next slot as its
+     * address.
      *
      * @param symbol the symbol to be registered.
-     * @return the old symbol.
+     * @return the old symbol with the same id in the same scope or null if there is none.
+     * @throws UnsupportedOperationException if the outermost scope is innermost and read-only.
      */
-    public SymbolInfo register(SymbolInfo symbol) {
-        return symbolMap.put(symbol.getId(), symbol);
+    public SymbolInfo register(SymbolInfo symbol) throws UnsupportedOperationException {
+        if (readOnly && depth == baseDepth) {
+            throw new UnsupportedOperationException("Cannot register a symbol in a read-only table");
+        }
+        int symbolId = symbol.getSymbolId();
+        SymbolInfo oldSymbol = getEntry(symbolId);
+        int oldDepth = getEntryDepth(symbolId);
+        if (depth > 0) {
+            logUndo(symbolId, oldSymbol, oldDepth);
+        }
+        symbol.setAddress(depth, slotCounts[depth]++);
+        setEntry(symbolId, symbol, depth);
+        if (oldSymbol == null && depth == 0 && globals != null) {
+            // The symbol hides a persistent global
+            return globals.get(symbolId);
+        }
+        return oldSymbol != null && oldDepth == depth ? oldSymbol : null;
+    }
+
+    private SymbolInfo getEntry(int symbolId) {
+        int i = symbolId - idBase;
+        if (i < 0) {
+            return lowSymbols == null ? null : lowSymbols.get(symbolId);
+        }
+        return i < symbols.length ? symbols[i] : null;
+    }
+
+    private int getEntryDepth(int symbolId) {
+        int i = symbolId - idBase;
+        if (i < 0) {
+            return lowDepths == null ? 0 : lowDepths.getOrDefault(symbolId, 0);
+        }
+        return i < depths.length ? depths[i] : 0;
     }
 
     /**
-     * Finds the symbol associated with the given key by moving up the chain of symbol tables.
+     * Sets the innermost visible symbol of a symbol id, growing the arrays if needed.
      *
-     * @param id the string that identifies a symbol in the table.
+     * @param symbolId the symbol id.
+     * @param symbol   the symbol, null if no symbol with the id is visible.
+     * @param depth    the depth of the scope that registered the symbol.
+     */
+    private void setEntry(int symbolId, SymbolInfo symbol, int depth) {
+        int i = symbolId - idBase;
+        if (i < 0) {
+            if (lowSymbols == null) {
+                lowSymbols = new HashMap<>();
+                lowDepths = new HashMap<>();
+            }
+            if (symbol == null) {
+                lowSymbols.remove(symbolId);
+                lowDepths.remove(symbolId);
+            } else {
+                lowSymbols.put(symbolId, symbol);
+                lowDepths.put(symbolId, depth);
+            }
+            return;
+        }
+        if (i >= symbols.length) {
+            int capacity = Math.max(symbols.length * 2, i + 1);
+            symbols = Arrays.copyOf(symbols, capacity);
+            depths = Arrays.copyOf(depths, capacity);
+        }
+        symbols[i] = symbol;
+        depths[i] = depth;
+    }
+
+    /**
+     * Gets the number of ids that the arrays of the table can hold without growing.
+     *
+     * @return the capacity of the arrays.
+     */
+    int getCapacity() {
+        return symbols.length;
+    }
+
+    private void logUndo(int symbolId, SymbolInfo oldSymbol, int oldDepth) {
+        if (undoCount == undoIds.length) {
+            undoIds = Arrays.copyOf(undoIds, undoCount * 2);
+            undoSymbols = Arrays.copyOf(undoSymbols, undoCount * 2);
+            undoDepths = Arrays.copyOf(undoDepths, undoCount * 2);
+        }
+        undoIds[undoCount] = symbolId;
+        undoSymbols[undoCount] = oldSymbol;
+        undoDepths[undoCount] = oldDepth;
+        ++undoCount;
+    }
+
+    /**
+     * Starts recording the ids of the symbols that are looked up in the innermost scope or in the scopes nested in it
+     * later, except for the lookups that are resolved by a nested scope.
+     */
+    public void startRecording() {
+        lookups = new int[INIT_CAPACITY];
+        numLookups = 0;
+        recordDepth = depth;
+    }
+
+    /**
+     * Stops recording the lookups.
+     *
+     * @return the ids of the symbols looked up since recording started, an id may appear more than once.
+     */
+    public int[] stopRecording() {
+        int[] ids = lookups == null ? new int[0] : Arrays.copyOf(lookups, numLookups);
+        lookups = null;
+        return ids;
+    }
+
+    /**
+     * Finds the symbol associated with the given key in the innermost scope that has one.
+     *
+     * @param symbolId the interned id that identifies a symbol in the table.
      * @return a symbol if one exists and null otherwise.
      */
-    public SymbolInfo getSymbol(String id) {
-        SymbolTable table = this;
-        SymbolInfo symbolInfo = null;
-        while (table != null && symbolInfo == null) {
-            symbolInfo = table.symbolMap.get(id);
-            table = table.parent;
+    public SymbolInfo getSymbol(int symbolId) {
+        SymbolInfo symbolInfo = getEntry(symbolId);
+        if (lookups != null && (symbolInfo == null || getEntryDepth(symbolId) <= recordDepth)) {
+            recordLookup(symbolId);
+        }
+        if (symbolInfo == null && globals != null) {
+            symbolInfo = globals.get(symbolId);
         }
         return symbolInfo;
     }
+
+    private void recordLookup(int symbolId) {
+        if (numLookups == lookups.length) {
+            lookups = Arrays.copyOf(lookups, numLookups * 2);
+        }
+        lookups[numLookups++] = symbolId;
+    }
 }
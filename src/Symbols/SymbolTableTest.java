@@ -0,0 +1,109 @@
+package Symbols;
+
+import Types.TypeTable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolTableTest {
+    private VarInfo createVar(String id, int symbolId) {
+        return new VarInfo(id, symbolId, TypeTable.getInstance().getType("int"), true);
+    }
+
+    @Test
+    void testScopes() {
+        SymbolTable symbolTable = new SymbolTable();
+        VarInfo a = createVar("a", 0);
+        symbolTable.register(a);
+
+        symbolTable.openScope();
+        VarInfo b = createVar("b", 1);
+        VarInfo innerA = createVar("a", 0);
+        symbolTable.register(b);
+        assertNull(symbolTable.register(innerA));
+        symbolTable.openScope();
+        VarInfo c = createVar("c", 100);
+        symbolTable.register(c);
+        assertSame(innerA, symbolTable.getSymbol(0));
+        assertSame(b, symbolTable.getSymbol(1));
+        assertSame(c, symbolTable.getSymbol(100));
+
+        // Closing a scope only pops its own symbols
+        symbolTable.closeScope();
+        assertNull(symbolTable.getSymbol(100));
+        assertSame(innerA, symbolTable.getSymbol(0));
+        symbolTable.closeScope();
+        assertSame(a, symbolTable.getSymbol(0));
+        assertNull(symbolTable.getSymbol(1));
+        assertThrows(IllegalStateException.class, symbolTable::closeScope);
+    }
+
+    @Test
+    void testRecording() {
+        SymbolTable symbolTable = new SymbolTable();
+        symbolTable.register(createVar("a", 0));
+        symbolTable.startRecording();
+        symbolTable.openScope();
+        symbolTable.register(createVar("b", 1));
+        symbolTable.getSymbol(0);
+        // Lookups resolved by the nested scope are not recorded
+        symbolTable.getSymbol(1);
+        symbolTable.getSymbol(2);
+        symbolTable.closeScope();
+        assertArrayEquals(new int[]{0, 2}, symbolTable.stopRecording());
+    }
+
+    @Test
+    void testSnapshot() {
+        SymbolTable symbolTable = new SymbolTable();
+        VarInfo a = createVar("a", 0);
+        symbolTable.register(a);
+        symbolTable.openScope();
+        symbolTable.register(createVar("b", 1));
+        SymbolTable snapshot = symbolTable.snapshot();
+        symbolTable.closeScope();
+
+        assertSame(a, snapshot.getSymbol(0));
+        assertNotNull(snapshot.getSymbol(1));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.register(createVar("c", 2)));
+        snapshot.openScope();
+        snapshot.register(createVar("c", 2));
+        snapshot.closeScope();
+        assertNull(snapshot.getSymbol(2));
+    }
+
+    @Test
+    void testForkCost() {
+        int[] numGlobalsList = {10, 200000};
+        for (int numGlobals : numGlobalsList) {
+            SymbolTable globalTable = new SymbolTable();
+            for (int i = 0; i < numGlobals; ++i) {
+                globalTable.register(createVar("g" + i, i));
+            }
+            PersistentSymbolMap globals = globalTable.persist();
+
+            // The fork's own names get the ids after the globals' ids, they do not make the fork grow with the globals
+            SymbolTable fork = new SymbolTable(globals, numGlobals);
+            VarInfo x = createVar("x", numGlobals);
+            assertNull(fork.register(x));
+            fork.openScope();
+            fork.register(createVar("y", numGlobals + 1));
+            assertSame(x, fork.getSymbol(numGlobals));
+            assertSame(globals.get(1), fork.getSymbol(1));
+            assertEquals(numGlobals, x.getSlot());
+            assertTrue(fork.getCapacity() <= 8);
+
+            // A global can still be hidden, and is visible again once the scope is closed
+            VarInfo innerG = createVar("g1", 1);
+            fork.register(innerG);
+            assertSame(innerG, fork.getSymbol(1));
+            fork.closeScope();
+            assertSame(globals.get(1), fork.getSymbol(1));
+            assertNull(fork.getSymbol(numGlobals + 1));
+            VarInfo g0 = createVar("g0", 0);
+            assertSame(globals.get(0), fork.register(g0));
+            assertSame(g0, fork.persist().get(0));
+            assertEquals(numGlobals + 1, fork.persist().size());
+        }
+    }
+}
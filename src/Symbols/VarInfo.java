@@ -5,8 +5,8 @@ import Types.TypeInfo;
 public class VarInfo extends SymbolInfo {
     private final boolean mutable;
 
-    public VarInfo(String id, TypeInfo dataType, boolean mutable) {
-        super(id, SymbolType.VAR, dataType);
+    public VarInfo(String id, int symbolId, TypeInfo dataType, boolean mutable) {
+        super(id, symbolId, SymbolType.VAR, dataType);
         this.mutable = mutable;
     }
 
@@ -0,0 +1,215 @@
+package Tokens;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+public class PerfectHash<V> {
+    private final static long FNV_OFFSET = 0xCBF29CE484222325L;
+    private final static long FNV_PRIME = 0x100000001B3L;
+    private final static long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private final static int MAX_SEED = 1 << 20;
+    // Keys and values indexed by slot, there are as many slots as keys
+    private final String[] keys;
+    private final Object[] values;
+    // The seed used to place the keys of each bucket in their slots
+    private final int[] seeds;
+
+    /**
+     * Builds a minimal perfect hash over a fixed set of strings using hash-and-displace: the keys are grouped into
+     * buckets by one hash, then for each bucket, starting from the largest, a seed is searched for that places all
+     * its keys in free slots.
+     *
+     * @param map the strings and their values.
+     * @throws IllegalStateException if no seed can be found for a bucket.
+     */
+    public PerfectHash(Map<String, V> map) throws IllegalStateException {
+        int n = map.size();
+        keys = new String[n];
+        values = new Object[n];
+        seeds = new int[Math.max(1, (n + 1) / 2)];
+
+        // Group the keys into buckets
+        ArrayList<ArrayList<Map.Entry<String, V>>> buckets = new ArrayList<>(seeds.length);
+        for (int i = 0; i < seeds.length; ++i) {
+            buckets.add(new ArrayList<>());
+        }
+        for (Map.Entry<String, V> entry : map.entrySet()) {
+            String key = entry.getKey();
+            buckets.get(getBucket(hash(key, 0, key.length()))).add(entry);
+        }
+        Integer[] order = new Integer[seeds.length];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (b1, b2) -> buckets.get(b2).size() - buckets.get(b1).size());
+
+        // Place the largest buckets first while there are still many free slots
+        int[] bucketSlots = new int[n];
+        for (int b : order) {
+            ArrayList<Map.Entry<String, V>> bucket = buckets.get(b);
+            if (bucket.isEmpty()) {
+                break;
+            }
+            int seed = 0;
+            while (!tryPlace(bucket, seed, bucketSlots)) {
+                if (++seed == MAX_SEED) {
+                    throw new IllegalStateException("Unable to build a perfect hash for the given keys");
+                }
+            }
+            seeds[b] = seed;
+            for (int i = 0; i < bucket.size(); ++i) {
+                keys[bucketSlots[i]] = bucket.get(i).getKey();
+                values[bucketSlots[i]] = bucket.get(i).getValue();
+            }
+        }
+    }
+
+    /**
+     * Gets the value associated with a string.
+     *
+     * @param key the string to be looked up.
+     * @return the value if the string is in the table and null otherwise.
+     */
+    public V get(String key) {
+        if (keys.length == 0) {
+            return null;
+        }
+        int slot = getSlot(hash(key, 0, key.length()));
+        return key.equals(keys[slot]) ? getValue(slot) : null;
+    }
+
+    /**
+     * Gets the value associated with a range of characters without creating a string.
+     *
+     * @param chars  the array that holds the characters.
+     * @param offset the position of the first character.
+     * @param length the number of characters.
+     * @return the value if the characters are in the table and null otherwise.
+     */
+    public V get(char[] chars, int offset, int length) {
+        if (keys.length == 0) {
+            return null;
+        }
+        long h = FNV_OFFSET;
+        for (int i = offset; i < offset + length; ++i) {
+            h = (h ^ chars[i]) * FNV_PRIME;
+        }
+        int slot = getSlot(h);
+        String key = keys[slot];
+        if (key.length() != length) {
+            return null;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (key.charAt(i) != chars[offset + i]) {
+                return null;
+            }
+        }
+        return getValue(slot);
+    }
+
+    /**
+     * Gets the value associated with a range of UTF-8 encoded bytes. A string is only created if the bytes are not
+     * all ASCII.
+     *
+     * @param bytes  the array that holds the bytes.
+     * @param offset the position of the first byte.
+     * @param length the number of bytes.
+     * @return the value if the decoded characters are in the table and null otherwise.
+     */
+    public V get(byte[] bytes, int offset, int length) {
+        if (keys.length == 0) {
+            return null;
+        }
+        long h = FNV_OFFSET;
+        for (int i = offset; i < offset + length; ++i) {
+            if (bytes[i] < 0) {
+                return get(new String(bytes, offset, length, StandardCharsets.UTF_8));
+            }
+            h = (h ^ bytes[i]) * FNV_PRIME;
+        }
+        int slot = getSlot(h);
+        String key = keys[slot];
+        if (key.length() != length) {
+            return null;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (key.charAt(i) != bytes[offset + i]) {
+                return null;
+            }
+        }
+        return getValue(slot);
+    }
+
+    /**
+     * Checks if the keys of a bucket can be placed in distinct free slots using a seed.
+     *
+     * @param bucket      the keys in the bucket.
+     * @param seed        the seed to be tried.
+     * @param bucketSlots the array that receives the slots of the keys.
+     * @return true if the keys can be placed and false otherwise.
+     */
+    private boolean tryPlace(ArrayList<Map.Entry<String, V>> bucket, int seed, int[] bucketSlots) {
+        for (int i = 0; i < bucket.size(); ++i) {
+            String key = bucket.get(i).getKey();
+            int slot = getSlot(hash(key, 0, key.length()), seed);
+            if (keys[slot] != null) {
+                return false;
+            }
+            for (int j = 0; j < i; ++j) {
+                if (bucketSlots[j] == slot) {
+                    return false;
+                }
+            }
+            bucketSlots[i] = slot;
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V getValue(int slot) {
+        return (V) values[slot];
+    }
+
+    private int getBucket(long h) {
+        return (int) Long.remainderUnsigned(mix(h), seeds.length);
+    }
+
+    private int getSlot(long h) {
+        return getSlot(h, seeds[getBucket(h)]);
+    }
+
+    private int getSlot(long h, int seed) {
+        return (int) Long.remainderUnsigned(mix(h + seed * GOLDEN_GAMMA + GOLDEN_GAMMA), keys.length);
+    }
+
+    /**
+     * Hashes a range of characters in a string with 64-bit FNV-1a, which is the same for the ASCII bytes of the
+     * string.
+     *
+     * @param str    the string.
+     * @param offset the position of the first character.
+     * @param length the number of characters.
+     * @return the hash of the characters.
+     */
+    private static long hash(String str, int offset, int length) {
+        long h = FNV_OFFSET;
+        for (int i = offset; i < offset + length; ++i) {
+            h = (h ^ str.charAt(i)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * Spreads the bits of a hash so that the buckets and slots do not depend on the same bits.
+     *
+     * @param h the hash.
+     * @return the mixed hash.
+     */
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -1,14 +1,47 @@
 package Tokens;
 
 public class Token {
-    private final String value;
+    // The source that the token's text is sliced from, null if the text is given as a string
+    private final TokenSrc src;
+    private final int offset;
+    private final int length;
+    // The token's text, built from the source the first time it is needed
+    private String value;
     private TokenType type;
-    private final int lineNum;
+    private int lineNum;
+    // The id of the interned name if the token is an ID, -1 otherwise
+    private final int symbolId;
+    // The value of a numeric literal computed by the lexer, a long for integers and the bits of a double for
+    // floating-point numbers
+    private long numBits;
+    private boolean hasNum;
 
-    public Token(String value, TokenType type, int lineNum) {
-        this.value = value;
+    /**
+     * Creates a token that refers to its text by position in the source instead of holding a copy of it.
+     *
+     * @param src      the source that holds the token's text.
+     * @param offset   the position of the token in the source.
+     * @param length   the length of the token in the source.
+     * @param type     the token's type.
+     * @param lineNum  the line the token is on.
+     * @param symbolId the id of the interned name if the token is an ID, -1 otherwise.
+     */
+    public Token(TokenSrc src, int offset, int length, TokenType type, int lineNum, int symbolId) {
+        this.src = src;
+        this.offset = offset;
+        this.length = length;
         this.type = type;
         this.lineNum = lineNum;
+        this.symbolId = symbolId;
+    }
+
+    public Token(String value, TokenType type, int lineNum, int symbolId) {
+        this(null, -1, value == null ? 0 : value.length(), type, lineNum, symbolId);
+        this.value = value;
+    }
+
+    public Token(String value, TokenType type, int lineNum) {
+        this(value, type, lineNum, -1);
     }
 
     public Token(String value, TokenType type) {
@@ -19,10 +52,68 @@ public class Token {
         this(value, TokenType.UNKNOWN, 1);
     }
 
+    /**
+     * Creates a numeric literal token that refers to its text by position in the source and carries the value
+     * computed while scanning it.
+     *
+     * @param src     the source that holds the token's text.
+     * @param offset  the position of the token in the source.
+     * @param length  the length of the token in the source.
+     * @param type    the token's type.
+     * @param lineNum the line the token is on.
+     * @param numBits a long for integers and the bits of a double for floating-point numbers.
+     * @return the token.
+     */
+    public static Token ofNumber(TokenSrc src, int offset, int length, TokenType type, int lineNum, long numBits) {
+        return new Token(src, offset, length, type, lineNum, -1).withNum(numBits);
+    }
+
+    /**
+     * Creates a numeric literal token that holds its text and carries the value computed while scanning it.
+     *
+     * @param value   the token's text.
+     * @param type    the token's type.
+     * @param lineNum the line the token is on.
+     * @param numBits a long for integers and the bits of a double for floating-point numbers.
+     * @return the token.
+     */
+    public static Token ofNumber(String value, TokenType type, int lineNum, long numBits) {
+        return new Token(value, type, lineNum, -1).withNum(numBits);
+    }
+
+    private Token withNum(long numBits) {
+        this.numBits = numBits;
+        this.hasNum = true;
+        return this;
+    }
+
     public String getValue() {
+        if (value == null && src != null) {
+            value = src.getStr(offset, length);
+            if (type == TokenType.INT_LITERAL || type == TokenType.FLOAT_LITERAL) {
+                value = normalizeNum(value);
+            }
+        }
         return value;
     }
 
+    /**
+     * Gets the source that the token's text is sliced from.
+     *
+     * @return the source or null if the token holds its text as a string.
+     */
+    public TokenSrc getSrc() {
+        return src;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
     public TokenType getType() {
         return type;
     }
@@ -31,13 +122,121 @@ public class Token {
         return lineNum;
     }
 
+    public int getSymbolId() {
+        return symbolId;
+    }
+
     public void setType(TokenType type) {
         this.type = type;
     }
 
+    public void setLineNum(int lineNum) {
+        this.lineNum = lineNum;
+    }
+
+    /**
+     * Gets the value of an integer literal. The value is computed by the lexer, it is only parsed from the text if
+     * the token was not created by the lexer.
+     *
+     * @return the integer value, Long.MAX_VALUE if it is too large.
+     */
+    public long getIntValue() {
+        if (!hasNum) {
+            numBits = parseIntLiteral(getValue());
+            hasNum = true;
+        }
+        return numBits;
+    }
+
+    /**
+     * Gets the value of a floating-point literal. The value is computed by the lexer, it is only parsed from the text
+     * if the token was not created by the lexer.
+     *
+     * @return the floating-point value.
+     */
+    public double getFloatValue() {
+        if (!hasNum) {
+            numBits = Double.doubleToRawLongBits(parseFloatLiteral(getValue()));
+            hasNum = true;
+        }
+        return Double.longBitsToDouble(numBits);
+    }
+
+    /**
+     * Normalizes the text of a numeric literal by filling in the omitted digits around each decimal point, for
+     * example, ".e+5." becomes "0.0e+5.0".
+     *
+     * @param numStr the text of the literal as it is in the source.
+     * @return the normalized text.
+     */
+    public static String normalizeNum(String numStr) {
+        StringBuilder normStr = new StringBuilder(numStr.length() + 4);
+        boolean hasDigit = false;
+        for (int i = 0; i < numStr.length(); ++i) {
+            char c = numStr.charAt(i);
+            if (c == '.') {
+                // Fill in the missing integer part
+                if (!hasDigit) {
+                    normStr.append('0');
+                }
+                normStr.append(c);
+                // Fill in the missing fraction part
+                if (i + 1 == numStr.length() || !Character.isDigit(numStr.charAt(i + 1))) {
+                    normStr.append('0');
+                }
+            } else {
+                normStr.append(c);
+            }
+            hasDigit = Character.isDigit(c);
+        }
+        return normStr.toString();
+    }
+
+    /**
+     * Parses the text of an integer literal.
+     *
+     * @param numStr the text of the literal, which may contain any Unicode digits.
+     * @return the integer value, Long.MAX_VALUE if it is too large.
+     */
+    public static long parseIntLiteral(String numStr) {
+        long value = 0;
+        for (int i = 0; i < numStr.length(); ++i) {
+            int digit = Character.digit(numStr.charAt(i), 10);
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                return Long.MAX_VALUE;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses the text of a floating-point literal. The exponent can have a fraction, in which case the value is the
+     * mantissa times 10 to the power of the exponent.
+     *
+     * @param numStr the text of the literal, which may contain any Unicode digits.
+     * @return the floating-point value.
+     */
+    public static double parseFloatLiteral(String numStr) {
+        // Double.parseDouble only accepts ASCII digits and needs a digit on each side of the decimal point
+        StringBuilder asciiStr = new StringBuilder(numStr.length() + 4);
+        String normStr = normalizeNum(numStr);
+        for (int i = 0; i < normStr.length(); ++i) {
+            char c = normStr.charAt(i);
+            asciiStr.append(Character.isDigit(c) ? (char) ('0' + Character.digit(c, 10)) : c);
+        }
+        int expPos = asciiStr.indexOf("e");
+        if (expPos < 0 || asciiStr.indexOf(".", expPos) < 0) {
+            return Double.parseDouble(asciiStr.toString());
+        }
+        double mantissa = Double.parseDouble(asciiStr.substring(0, expPos));
+        double exponent = Double.parseDouble(asciiStr.substring(expPos + 1));
+        return mantissa * Math.pow(10, exponent);
+    }
+
     @Override
     public String toString() {
-        return "Token: " + value + ", Token type: " + type + ", Line number: " + lineNum;
+        return "Token: " + getValue() + ", Token type: " + type + ", Line number: " + lineNum;
     }
 
     @Override
@@ -48,6 +247,6 @@ public class Token {
         if (!(obj instanceof Token token)) {
             return false;
         }
-        return value.equals(token.getValue()) && type == token.type;
+        return getValue().equals(token.getValue()) && type == token.type;
     }
 }
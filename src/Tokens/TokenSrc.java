@@ -0,0 +1,31 @@
+package Tokens;
+
+public interface TokenSrc {
+    /**
+     * Gets the text of a token from the source.
+     *
+     * @param offset the position of the token in the source.
+     * @param length the length of the token in the source.
+     * @return a string containing the token's text.
+     */
+    String getStr(int offset, int length);
+
+    /**
+     * Computes the hash code of a token's text without creating a string.
+     *
+     * @param offset the position of the token in the source.
+     * @param length the length of the token in the source.
+     * @return the same hash code as that of the string returned by getStr.
+     */
+    int hashStr(int offset, int length);
+
+    /**
+     * Checks if a token's text is equal to a string without creating another string.
+     *
+     * @param offset the position of the token in the source.
+     * @param length the length of the token in the source.
+     * @param str    the string to be compared to.
+     * @return true if the token's text is equal to the string and false otherwise.
+     */
+    boolean equalsStr(int offset, int length, String str);
+}
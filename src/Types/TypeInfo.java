@@ -3,10 +3,13 @@ package Types;
 public class TypeInfo {
     private final String id;
     private final int size;
+    // Dense index of the type assigned by the type table
+    private final int ordinal;
 
-    public TypeInfo(String id, int size) {
+    TypeInfo(String id, int size, int ordinal) {
         this.id = id;
         this.size = size;
+        this.ordinal = ordinal;
     }
 
     public String getId() {
@@ -17,6 +20,10 @@ public class TypeInfo {
         return size;
     }
 
+    public int getOrdinal() {
+        return ordinal;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == this) {
@@ -1,53 +1,87 @@
 package Types;
 
+import Tokens.PerfectHash;
 import Tokens.TokenType;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 public class TypeTable {
-    private final HashMap<String, TypeInfo> strTypeMap = new HashMap<>();
-    private final HashMap<TokenType, TypeInfo> literalTypeMap = new HashMap<>();
-    private final static TypeTable INSTANCE = new TypeTable();
-    private static boolean init = false;
+    // Types indexed by their ordinals
+    private final TypeInfo[] types;
+    private final Map<String, TypeInfo> strTypeMap;
+    // Perfect hash over the type ids that is used for lookups
+    private final PerfectHash<TypeInfo> strTypeHash;
+    // Types of the literals indexed by the literals' token type ordinals
+    private final TypeInfo[] literalTypes;
+    // Data that other components derive from the table, such as the lexer's automaton, built once per table
+    private final ConcurrentHashMap<Class<?>, Object> derived = new ConcurrentHashMap<>();
+    // The built-in types, extending them creates a new table so this one never changes after class initialization
+    private final static TypeTable INSTANCE = createBuiltinTable();
 
-    private TypeTable() {
+    private TypeTable(TypeInfo[] types, TypeInfo[] literalTypes) {
+        this.types = types;
+        this.literalTypes = literalTypes;
+        HashMap<String, TypeInfo> typeMap = new HashMap<>();
+        for (TypeInfo type : types) {
+            typeMap.put(type.getId(), type);
+        }
+        this.strTypeMap = Collections.unmodifiableMap(typeMap);
+        this.strTypeHash = new PerfectHash<>(typeMap);
+    }
+
+    private static TypeTable createBuiltinTable() {
+        TypeInfo[] types = {new TypeInfo("int", 4, 0), new TypeInfo("float", 4, 1), new TypeInfo("bool", 1, 2)};
+        TypeInfo[] literalTypes = new TypeInfo[TokenType.values().length];
+        literalTypes[TokenType.INT_LITERAL.ordinal()] = types[0];
+        literalTypes[TokenType.FLOAT_LITERAL.ordinal()] = types[1];
+        literalTypes[TokenType.BOOL_LITERAL.ordinal()] = types[2];
+        return new TypeTable(types, literalTypes);
     }
 
     /**
-     * Initializes the only instance of TypeTable if it has not been initialized and then returns it.
+     * Gets the table of built-in types, which cannot be modified and can be shared between threads.
      *
      * @return a TypeTable object.
      */
     public static TypeTable getInstance() {
-        if (!init) {
-            // Add types to table
-            INSTANCE.register(TokenType.INT_LITERAL, new TypeInfo("int", 4));
-            INSTANCE.register(TokenType.FLOAT_LITERAL, new TypeInfo("float", 4));
-            INSTANCE.register(TokenType.BOOL_LITERAL, new TypeInfo("bool", 1));
-
-            init = true;
-        }
         return INSTANCE;
     }
 
     /**
-     * Adds a new data type to the table.
+     * Creates a table that holds the types of this table plus a new type with the next ordinal. This table is not
+     * modified, so a parser can extend the table without affecting other parsers and without locking.
      *
-     * @param type TypeInfo object that carries type data.
+     * @param id   the id of the new type.
+     * @param size the size of the new type.
+     * @return the extended table.
+     * @throws IllegalArgumentException if the table already has a type with the same id.
      */
-    public void register(TypeInfo type) {
-        strTypeMap.put(type.getId(), type);
+    public TypeTable extend(String id, int size) throws IllegalArgumentException {
+        if (strTypeMap.containsKey(id)) {
+            throw new IllegalArgumentException("Type '" + id + "' already exists");
+        }
+        TypeInfo[] newTypes = Arrays.copyOf(types, types.length + 1);
+        newTypes[types.length] = new TypeInfo(id, size, types.length);
+        return new TypeTable(newTypes, literalTypes);
     }
 
     /**
-     * Maps a literal token type to a new data type and adds that data type to the table.
+     * Gets data derived from the table, building it the first time it is requested for the table. The data is shared
+     * by all the users of the table, so it must not be modified.
      *
-     * @param literalType the token type of the literal.
-     * @param type        the data type to be mapped to.
+     * @param cls     the class of the data, only one object of each class is kept per table.
+     * @param factory the function that builds the data from the table.
+     * @param <T>     the type of the data.
+     * @return the data derived from the table.
      */
-    private void register(TokenType literalType, TypeInfo type) {
-        literalTypeMap.put(literalType, type);
-        register(type);
+    public <T> T getDerived(Class<T> cls, Function<TypeTable, T> factory) {
+        return cls.cast(derived.computeIfAbsent(cls, key -> factory.apply(this)));
     }
 
     /**
@@ -57,7 +91,59 @@ public class TypeTable {
      * @return a TypeInfo object associated with the given id.
      */
     public TypeInfo getType(String id) {
-        return strTypeMap.get(id);
+        return strTypeHash.get(id);
+    }
+
+    /**
+     * Gets the type associated with a range of characters without creating a string.
+     *
+     * @param chars  the array that holds the characters.
+     * @param offset the position of the first character.
+     * @param length the number of characters.
+     * @return a TypeInfo object associated with the characters if it exists, otherwise, return null.
+     */
+    public TypeInfo getType(char[] chars, int offset, int length) {
+        return strTypeHash.get(chars, offset, length);
+    }
+
+    /**
+     * Gets the type associated with a range of UTF-8 encoded bytes without creating a string.
+     *
+     * @param bytes  the array that holds the bytes.
+     * @param offset the position of the first byte.
+     * @param length the number of bytes.
+     * @return a TypeInfo object associated with the characters if it exists, otherwise, return null.
+     */
+    public TypeInfo getType(byte[] bytes, int offset, int length) {
+        return strTypeHash.get(bytes, offset, length);
+    }
+
+    /**
+     * Gets the type with the given ordinal.
+     *
+     * @param ordinal the ordinal of the type.
+     * @return a TypeInfo object with the given ordinal.
+     */
+    public TypeInfo getType(int ordinal) {
+        return types[ordinal];
+    }
+
+    /**
+     * Counts the types in the table, which is also the ordinal of the next type to be added.
+     *
+     * @return the number of types.
+     */
+    public int countTypes() {
+        return types.length;
+    }
+
+    /**
+     * Gets the ids of all types in the table.
+     *
+     * @return a read-only set of type ids.
+     */
+    public Set<String> getTypeIds() {
+        return strTypeMap.keySet();
     }
 
     /**
@@ -67,6 +153,6 @@ public class TypeTable {
      * @return a TypeInfo object associated with the given literal type.
      */
     public TypeInfo getType(TokenType literalType) {
-        return literalTypeMap.get(literalType);
+        return literalTypes[literalType.ordinal()];
     }
 }